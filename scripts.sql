@@ -9,27 +9,38 @@ CREATE TABLE user (
 CREATE TABLE product (
   id BIGINT AUTO_INCREMENT NOT NULL,
    product_name VARCHAR(255) NOT NULL,
-   price DECIMAL NOT NULL,
+   price DECIMAL(19, 2) NOT NULL,
+   stock_quantity INT NULL,
    CONSTRAINT pk_product PRIMARY KEY (id)
 );
 
 CREATE TABLE customer_order (
   id BIGINT AUTO_INCREMENT NOT NULL,
    user_id BIGINT NOT NULL,
-   order_amount DECIMAL NOT NULL,
+   order_amount DECIMAL(19, 2) NOT NULL,
+   intake_tracking_id VARCHAR(36) NULL,
    order_status VARCHAR(255) NULL,
    created_on datetime NULL,
    updated_on datetime NULL,
-   CONSTRAINT pk_customerorder PRIMARY KEY (id)
+   version BIGINT NOT NULL DEFAULT 0,
+   CONSTRAINT pk_customerorder PRIMARY KEY (id),
+   -- orders placed from order_intake_queue, a redelivered message is not placed twice
+   CONSTRAINT uk_customer_order_intake_tracking_id UNIQUE (intake_tracking_id)
 );
 
 ALTER TABLE customer_order ADD CONSTRAINT FK_CUSTOMERORDER_ON_USER FOREIGN KEY (user_id) REFERENCES user (id);
 
+-- per-user order history (GET /users/{id}/orders), newest first by (created_on, id)
+CREATE INDEX idx_customer_order_user_created ON customer_order (user_id, created_on, id);
+
+CREATE INDEX idx_customer_order_user_status ON customer_order (user_id, order_status, created_on, id);
+
 CREATE TABLE order_product (
   id BIGINT AUTO_INCREMENT NOT NULL,
    order_id BIGINT NOT NULL,
    product_id BIGINT NOT NULL,
    quantity INT NOT NULL,
+   unit_price DECIMAL(19, 2) NULL,
    CONSTRAINT pk_orderproduct PRIMARY KEY (id)
 );
 
@@ -37,32 +48,125 @@ ALTER TABLE order_product ADD CONSTRAINT FK_ORDERPRODUCT_ON_ORDER FOREIGN KEY (o
 
 ALTER TABLE order_product ADD CONSTRAINT FK_ORDERPRODUCT_ON_PRODUCT FOREIGN KEY (product_id) REFERENCES product (id);
 
+-- pooled id tables for customer_order and order_product (allocation size 50, MySQL has no sequences).
+-- next_val starts 50 above the highest existing id, so the same statements upgrade a populated database.
+CREATE TABLE customer_order_seq (
+  next_val BIGINT NULL
+);
+
+INSERT INTO customer_order_seq (next_val) SELECT COALESCE(MAX(id), 0) + 50 FROM customer_order;
+
+CREATE TABLE order_product_seq (
+  next_val BIGINT NULL
+);
+
+INSERT INTO order_product_seq (next_val) SELECT COALESCE(MAX(id), 0) + 50 FROM order_product;
+
 CREATE TABLE payment (
   id BIGINT AUTO_INCREMENT NOT NULL,
    order_id BIGINT NULL,
    user_id BIGINT NULL,
-   received_amount DECIMAL NOT NULL,
+   received_amount DECIMAL(19, 2) NOT NULL,
    payment_status VARCHAR(255) NULL,
    error_message VARCHAR(255) NULL,
+   idempotency_key VARCHAR(64) NULL,
    created_on datetime NULL,
    updated_on datetime NULL,
-   CONSTRAINT pk_payment PRIMARY KEY (id)
+   CONSTRAINT pk_payment PRIMARY KEY (id),
+   CONSTRAINT uk_payment_idempotency_key UNIQUE (idempotency_key)
 );
 
 ALTER TABLE payment ADD CONSTRAINT FK_PAYMENT_ON_ORDER FOREIGN KEY (order_id) REFERENCES customer_order (id);
 
 ALTER TABLE payment ADD CONSTRAINT FK_PAYMENT_ON_USER FOREIGN KEY (user_id) REFERENCES user (id);
 
+-- per-user payment history (GET /users/{id}/payments), newest first by (created_on, id)
+CREATE INDEX idx_payment_user_created ON payment (user_id, created_on, id);
+
+CREATE INDEX idx_payment_user_status ON payment (user_id, payment_status, created_on, id);
+
 CREATE TABLE transaction (
   id BIGINT AUTO_INCREMENT NOT NULL,
+   payment_id BIGINT NULL,
    customer_order_id BIGINT NULL,
    user_id BIGINT NULL,
-   amount DECIMAL NOT NULL,
+   amount DECIMAL(19, 2) NOT NULL,
    created_on datetime NULL,
    updated_on datetime NULL,
-   CONSTRAINT pk_transaction PRIMARY KEY (id)
+   CONSTRAINT pk_transaction PRIMARY KEY (id),
+   -- redelivered payment events are skipped on this key
+   CONSTRAINT uk_transaction_payment UNIQUE (payment_id)
 );
 
+ALTER TABLE transaction ADD CONSTRAINT FK_TRANSACTION_ON_PAYMENT FOREIGN KEY (payment_id) REFERENCES payment (id);
+
 ALTER TABLE transaction ADD CONSTRAINT FK_TRANSACTION_ON_CUSTOMER_ORDER FOREIGN KEY (customer_order_id) REFERENCES customer_order (id);
 
-ALTER TABLE transaction ADD CONSTRAINT FK_TRANSACTION_ON_USER FOREIGN KEY (user_id) REFERENCES user (id);
\ No newline at end of file
+ALTER TABLE transaction ADD CONSTRAINT FK_TRANSACTION_ON_USER FOREIGN KEY (user_id) REFERENCES user (id);
+
+CREATE TABLE outbox_event (
+  id BIGINT AUTO_INCREMENT NOT NULL,
+   event_type VARCHAR(255) NOT NULL,
+   aggregate_id BIGINT NOT NULL,
+   created_on datetime NULL,
+   published_on datetime NULL,
+   CONSTRAINT pk_outboxevent PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_outbox_event_published_on ON outbox_event (published_on, id);
+
+-- sales aggregates for /reports, updated by the transaction consumer; rebuild with --reports.rebuild=true
+CREATE TABLE user_sales (
+  user_id BIGINT NOT NULL,
+   order_count BIGINT NOT NULL,
+   revenue DECIMAL(19, 2) NOT NULL,
+   updated_on datetime NULL,
+   CONSTRAINT pk_user_sales PRIMARY KEY (user_id)
+);
+
+CREATE TABLE product_sales (
+  product_id BIGINT NOT NULL,
+   units_sold BIGINT NOT NULL,
+   revenue DECIMAL(19, 2) NOT NULL,
+   updated_on datetime NULL,
+   CONSTRAINT pk_product_sales PRIMARY KEY (product_id)
+);
+
+CREATE TABLE daily_sales (
+  sales_date date NOT NULL,
+   order_count BIGINT NOT NULL,
+   revenue DECIMAL(19, 2) NOT NULL,
+   updated_on datetime NULL,
+   CONSTRAINT pk_daily_sales PRIMARY KEY (sales_date)
+);
+
+-- amounts used to be DECIMAL with no scale, which MySQL creates as DECIMAL(10,0) and rounds away the cents.
+-- Widening keeps existing values, so the same statements upgrade a populated database.
+ALTER TABLE product MODIFY price DECIMAL(19, 2) NOT NULL;
+
+ALTER TABLE customer_order MODIFY order_amount DECIMAL(19, 2) NOT NULL;
+
+ALTER TABLE payment MODIFY received_amount DECIMAL(19, 2) NOT NULL;
+
+ALTER TABLE transaction MODIFY amount DECIMAL(19, 2) NOT NULL;
+
+-- databases created before customer_order.version: existing orders start at version 0
+-- ALTER TABLE customer_order ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- databases created before transaction.payment_id: rows stored until then keep a NULL payment id
+-- ALTER TABLE transaction ADD COLUMN payment_id BIGINT NULL AFTER id;
+-- ALTER TABLE transaction ADD CONSTRAINT uk_transaction_payment UNIQUE (payment_id);
+-- ALTER TABLE transaction ADD CONSTRAINT FK_TRANSACTION_ON_PAYMENT FOREIGN KEY (payment_id) REFERENCES payment (id);
+
+-- databases created before customer_order.intake_tracking_id
+-- ALTER TABLE customer_order ADD COLUMN intake_tracking_id VARCHAR(36) NULL AFTER order_amount;
+-- ALTER TABLE customer_order ADD CONSTRAINT uk_customer_order_intake_tracking_id UNIQUE (intake_tracking_id);
+
+-- databases whose status indexes end in id only: history pages are sorted by (created_on, id)
+-- ALTER TABLE customer_order DROP INDEX idx_customer_order_user_status, ADD INDEX idx_customer_order_user_status (user_id, order_status, created_on, id);
+-- ALTER TABLE payment DROP INDEX idx_payment_user_status, ADD INDEX idx_payment_user_status (user_id, payment_status, created_on, id);
+
+-- databases created before order_product.unit_price: existing lines take the current price, the closest
+-- value still known; product_sales can then be recomputed with --reports.rebuild=true
+-- ALTER TABLE order_product ADD COLUMN unit_price DECIMAL(19, 2) NULL;
+-- UPDATE order_product op JOIN product p ON p.id = op.product_id SET op.unit_price = p.price WHERE op.unit_price IS NULL;
@@ -1,26 +1,200 @@
 package com.ecommerce.demo.config;
 
+import com.hazelcast.client.config.ClientConfig;
+import com.hazelcast.cluster.Member;
 import com.hazelcast.config.*;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.spi.properties.ClusterProperty;
+import com.hazelcast.spring.cache.HazelcastCacheManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Hazelcast maps and cluster membership, set by hazelcast.cluster.* in application.yml. In embedded mode
+ * (the default) the application is a member holding a share of every map and joins the members listed in
+ * hazelcast.cluster.members over TCP-IP; multicast is never used, so a pod cannot join a cluster by accident.
+ * In client mode it holds no data and connects to those members, which must be instances of this application
+ * in embedded mode: the stock and rate-limit entry processors run on the members and need its classes.
+ */
 @Configuration
 public class CacheConfig {
 
+    public static final String ORDERS_CACHE = "orders-cache";
+    public static final String ORDER_LIST_CACHE = "order-list-cache";
+    public static final String PRODUCTS_CACHE = "products-cache";
+    public static final String PRODUCT_LIST_CACHE = "product-list-cache";
+    public static final String ORDER_INTAKE_MAP = "order-intake-status";
+    public static final String STOCK_MAP = "stock-levels";
+    public static final String RATE_LIMIT_MAP = "rate-limits";
+
+    public static final int DEFAULT_BACKUP_COUNT = 1;
+
     @Bean
+    @ConditionalOnProperty(name = "hazelcast.cluster.mode", havingValue = "embedded", matchIfMissing = true)
+    public Config memberConfig(@Value("${hazelcast.cluster.name:ecommerce}") String clusterName,
+                               @Value("${hazelcast.cluster.members:}") List<String> members,
+                               @Value("${hazelcast.cluster.port:5701}") int port,
+                               @Value("${hazelcast.cluster.backup-count:1}") int backupCount,
+                               @Value("${hazelcast.cluster.cache-backup-count:1}") int cacheBackupCount,
+                               @Value("${hazelcast.cluster.near-cache.orders:true}") boolean ordersNearCache) {
+        Config config = configure(backupCount, cacheBackupCount, ordersNearCache).setClusterName(clusterName);
+        config.getNetworkConfig().setPort(port);
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getAutoDetectionConfig().setEnabled(false);
+        //no members listed: a standalone member
+        join.getTcpIpConfig().setEnabled(!members.isEmpty()).setMembers(members);
+        return config;
+    }
+
+    //Near-caches products and, unless disabled, orders; every read of the other maps goes to the owning member
+    @Bean
+    @ConditionalOnProperty(name = "hazelcast.cluster.mode", havingValue = "client")
+    public ClientConfig clientConfig(@Value("${hazelcast.cluster.name:ecommerce}") String clusterName,
+                                     @Value("${hazelcast.cluster.members:}") List<String> members,
+                                     @Value("${hazelcast.cluster.near-cache.orders:true}") boolean ordersNearCache) {
+        ClientConfig clientConfig = new ClientConfig()
+                .setInstanceName("hazelcast-client")
+                .setClusterName(clusterName)
+                //a client owns no entries, cache-local-entries is a member-only option
+                .addNearCacheConfig(productsNearCache().setCacheLocalEntries(false));
+        if (ordersNearCache) {
+            clientConfig.addNearCacheConfig(nearCache(ORDERS_CACHE).setCacheLocalEntries(false));
+        }
+        clientConfig.getNetworkConfig().setAddresses(members);
+        return clientConfig;
+    }
+
+    //Map settings of the application with the default backups and near-caches, without any cluster settings
     public Config configure() {
+        return configure(DEFAULT_BACKUP_COUNT, DEFAULT_BACKUP_COUNT, true);
+    }
+
+    //backupCount applies to the maps that are the only copy of their data (order intake statuses and stock),
+    //cacheBackupCount to the caches, where a lost entry is only a miss
+    public Config configure(int backupCount, int cacheBackupCount, boolean ordersNearCache) {
         return new Config().setInstanceName("hazelcast-instance")
+                // Near-cache invalidations are sent at once instead of in batches of up to 10 seconds,
+                // so a member does not serve an order's old status long after another member changed it
+                .setProperty(ClusterProperty.MAP_INVALIDATION_MESSAGE_BATCH_ENABLED.getName(), "false")
+                // One entry per order id
                 .addMapConfig(new MapConfig()
-                        .setName("orders-cache")
-                        .setTimeToLiveSeconds(3600) // Cache TTL in seconds
+                        .setName(ORDERS_CACHE)
+                        // Cache TTL in seconds; bounds how long a value put back by a reader slower than the second
+                        // eviction is served
+                        .setTimeToLiveSeconds(300)
                         .setMaxIdleSeconds(600)
+                        .setBackupCount(cacheBackupCount)
+                        .setStatisticsEnabled(true)
+                        .setEvictionConfig(
+                                new EvictionConfig()
+                                        .setSize(10000)
+                                        .setMaxSizePolicy(MaxSizePolicy.PER_NODE)
+                                        .setEvictionPolicy(EvictionPolicy.LRU)
+                        )
+                        // Per-member copy of orders read on this member, invalidated cluster wide on every put/evict
+                        .setNearCacheConfig(ordersNearCache ? nearCache(ORDERS_CACHE) : null))
+                // Order list segments, dropped wholesale on every order mutation
+                .addMapConfig(new MapConfig()
+                        .setName(ORDER_LIST_CACHE)
+                        .setTimeToLiveSeconds(60)
+                        .setBackupCount(cacheBackupCount)
+                        .setStatisticsEnabled(true)
+                        .setEvictionConfig(
+                                new EvictionConfig()
+                                        .setSize(100)
+                                        .setMaxSizePolicy(MaxSizePolicy.PER_NODE)
+                                        .setEvictionPolicy(EvictionPolicy.LRU)
+                        ))
+                .addMapConfig(new MapConfig()
+                        .setName(PRODUCTS_CACHE)
+                        .setTimeToLiveSeconds(3600)
+                        .setBackupCount(cacheBackupCount)
+                        .setStatisticsEnabled(true)
                         .setEvictionConfig(
                                 new EvictionConfig()
-                                        .setSize(200)
-                                        .setMaxSizePolicy(MaxSizePolicy.FREE_HEAP_SIZE)
+                                        .setSize(50000)
+                                        .setMaxSizePolicy(MaxSizePolicy.PER_NODE)
                                         .setEvictionPolicy(EvictionPolicy.LRU)
                         )
-                        .setTimeToLiveSeconds(2000));
+                        // Per-node copy of hot products, invalidated cluster wide on every put/delete
+                        .setNearCacheConfig(productsNearCache()))
+                .addMapConfig(new MapConfig()
+                        .setName(PRODUCT_LIST_CACHE)
+                        .setTimeToLiveSeconds(300)
+                        .setBackupCount(cacheBackupCount))
+                // Status of orders accepted by the async intake, polled by clients until placed or failed
+                .addMapConfig(new MapConfig()
+                        .setName(ORDER_INTAKE_MAP)
+                        .setTimeToLiveSeconds(86400)
+                        .setBackupCount(backupCount)
+                        .setEvictionConfig(
+                                new EvictionConfig()
+                                        .setSize(500000)
+                                        .setMaxSizePolicy(MaxSizePolicy.PER_NODE)
+                                        .setEvictionPolicy(EvictionPolicy.LRU)
+                        ))
+                // Live stock per product; the source of truth for reservations, so never evicted or expired.
+                // OBJECT format lets the entry processors update values without deserializing them
+                .addMapConfig(new MapConfig()
+                        .setName(STOCK_MAP)
+                        .setBackupCount(backupCount)
+                        .setInMemoryFormat(InMemoryFormat.OBJECT)
+                        .setStatisticsEnabled(true))
+                // Admission control token buckets, one per user plus the global one. No backup: a bucket lost
+                // with its member starts full again, which only lets one extra burst through.
+                // Idle buckets are full anyway, so they are dropped after 10 minutes
+                .addMapConfig(new MapConfig()
+                        .setName(RATE_LIMIT_MAP)
+                        .setBackupCount(0)
+                        .setMaxIdleSeconds(600)
+                        .setInMemoryFormat(InMemoryFormat.OBJECT)
+                        .setStatisticsEnabled(true));
+    }
+
+    //Products are mutable entities: kept serialized, every get returns its own copy instead of one shared instance
+    private static NearCacheConfig productsNearCache() {
+        return nearCache(PRODUCTS_CACHE).setInMemoryFormat(InMemoryFormat.BINARY);
+    }
+
+    private static NearCacheConfig nearCache(String mapName) {
+        return new NearCacheConfig(mapName)
+                .setInMemoryFormat(InMemoryFormat.OBJECT)
+                .setInvalidateOnChange(true)
+                .setCacheLocalEntries(true)
+                .setEvictionConfig(
+                        new EvictionConfig()
+                                .setSize(10000)
+                                .setMaxSizePolicy(MaxSizePolicy.ENTRY_COUNT)
+                                .setEvictionPolicy(EvictionPolicy.LRU)
+                );
+    }
+
+    //Clients own no partitions and keep no local map statistics; only members write back stock or report map stats
+    public static boolean isMember(HazelcastInstance hazelcastInstance) {
+        return hazelcastInstance.getLocalEndpoint() instanceof Member;
+    }
+
+    //Defer cache puts/evictions until the surrounding transaction commits so readers never re-cache uncommitted state.
+    //Every eviction is repeated after a delay: a reader that loaded the old value before the commit puts it back after
+    //the first one. With a read replica the delay is at least the time the replica needs to catch up
+    @Bean
+    public CacheManager cacheManager(HazelcastInstance hazelcastInstance,
+                                     @Value("${hazelcast.cluster.second-eviction-delay-ms:1000}") long secondEvictionDelayMs,
+                                     @Value("${" + DataSourceConfig.REPLICA_PREFIX + ".url:}") String replicaUrl,
+                                     @Value("${" + DataSourceConfig.REPLICA_PREFIX + ".read-your-writes-seconds:5}") int replicaLagSeconds) {
+        Duration delay = Duration.ofMillis(secondEvictionDelayMs);
+        if (!replicaUrl.isBlank() && delay.compareTo(Duration.ofSeconds(replicaLagSeconds)) < 0) {
+            delay = Duration.ofSeconds(replicaLagSeconds);
+        }
+        return new TransactionAwareCacheManagerProxy(new DelayedEvictionCacheManager(new HazelcastCacheManager(hazelcastInstance), delay));
     }
 
 }
@@ -0,0 +1,65 @@
+package com.ecommerce.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Primary and replica pools, active only when spring.datasource.replica.url is set; without it the
+ * application keeps the single auto-configured datasource. Read-only transactions, the
+ * {@code @Transactional(readOnly = true)} service methods and Spring Data reads outside a write transaction,
+ * use the replica. Writes, and JDBC work outside any transaction, use the primary.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.datasource.replica", name = "url")
+public class DataSourceConfig {
+
+    public static final String REPLICA_PREFIX = "spring.datasource.replica";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    //same keys as spring.datasource (url, username, password, hikari.*) under spring.datasource.replica
+    @Bean
+    @ConfigurationProperties(REPLICA_PREFIX + ".hikari")
+    public HikariDataSource replicaDataSource(Environment environment) {
+        DataSourceProperties replicaProperties = Binder.get(environment)
+                .bind(REPLICA_PREFIX, DataSourceProperties.class)
+                .get();
+        return replicaProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource();
+        routingDataSource.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.Route.PRIMARY, primaryDataSource,
+                ReadWriteRoutingDataSource.Route.REPLICA, replicaDataSource));
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${" + REPLICA_PREFIX + ".read-your-writes-seconds:5}") int stickinessSeconds) {
+        return new ReadYourWritesFilter(stickinessSeconds);
+    }
+}
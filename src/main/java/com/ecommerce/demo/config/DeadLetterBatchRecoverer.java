@@ -0,0 +1,38 @@
+package com.ecommerce.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+
+import java.util.List;
+
+/**
+ * Recoverer of the batch listeners: every message of a delivery that used up its retries is sent to the dead
+ * letter exchange, then the container acks the delivery. The retry interceptor only hands a batch to a
+ * {@link MessageBatchRecoverer}; any other recoverer is skipped for a batch and its messages would be acked and lost.
+ * If a send fails, the exception rejects the delivery without requeue and the queues' dead letter arguments
+ * route the messages instead.
+ */
+@Slf4j
+public class DeadLetterBatchRecoverer implements MessageBatchRecoverer {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    public DeadLetterBatchRecoverer(RabbitTemplate rabbitTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    @Override
+    public void recover(Message message, Throwable cause) {
+        recover(List.of(message), cause);
+    }
+
+    @Override
+    public void recover(List<Message> messages, Throwable cause) {
+        log.error("Retries exhausted, {} messages routed to {}: {}", messages.size(), RabbitMQConfig.DEAD_LETTER_QUEUE,
+                cause.getMessage());
+        messages.forEach(message ->
+                rabbitTemplate.send(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, message));
+    }
+}
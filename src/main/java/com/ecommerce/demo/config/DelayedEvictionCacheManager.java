@@ -0,0 +1,137 @@
+package com.ecommerce.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Repeats every eviction after a delay. A reader that loaded a value before the write committed puts it back
+ * after the eviction that follows the commit; so does a cache miss filled by a read-only loader from a replica
+ * that does not have the write yet. Without the second eviction that old value would be served until its TTL.
+ */
+@Slf4j
+public class DelayedEvictionCacheManager implements CacheManager {
+
+    private final CacheManager targetCacheManager;
+
+    private final Duration delay;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-delayed-eviction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DelayedEvictionCacheManager(CacheManager targetCacheManager, Duration delay) {
+        this.targetCacheManager = targetCacheManager;
+        this.delay = delay;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = targetCacheManager.getCache(name);
+        return cache == null ? null : new DelayedEvictionCache(cache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return targetCacheManager.getCacheNames();
+    }
+
+    private void later(String cacheName, Runnable eviction) {
+        scheduler.schedule(() -> {
+            try {
+                eviction.run();
+            } catch (RuntimeException e) {
+                log.warn("Delayed eviction from {} failed: {}", cacheName, e.getMessage());
+            }
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private class DelayedEvictionCache implements Cache {
+
+        private final Cache target;
+
+        DelayedEvictionCache(Cache target) {
+            this.target = target;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return target.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return target.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return target.get(key, valueLoader);
+        }
+
+        @Override
+        public CompletableFuture<?> retrieve(Object key) {
+            return target.retrieve(key);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            return target.retrieve(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            target.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return target.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            target.evict(key);
+            later(getName(), () -> target.evict(key));
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            later(getName(), () -> target.evict(key));
+            return target.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            target.clear();
+            later(getName(), target::clear);
+        }
+
+        @Override
+        public boolean invalidate() {
+            later(getName(), target::clear);
+            return target.invalidate();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.ecommerce.demo.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.converter.AbstractJackson2MessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+
+//Jackson converter for binary formats such as Smile or CBOR, same type headers as Jackson2JsonMessageConverter
+public class JacksonBinaryMessageConverter extends AbstractJackson2MessageConverter {
+
+    public JacksonBinaryMessageConverter(ObjectMapper objectMapper, String contentType) {
+        super(objectMapper, MimeType.valueOf(contentType), RabbitMQConfig.TRUSTED_PACKAGES);
+    }
+
+    //the parent decodes the body through a String, which binary formats cannot parse
+    @Override
+    public Object fromMessage(Message message, Object conversionHint) throws MessageConversionException {
+        JavaType targetType = getJavaTypeMapper().toJavaType(message.getMessageProperties());
+        try {
+            return objectMapper.readValue(message.getBody(), targetType);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to convert " + getSupportedContentType() + " message", e);
+        }
+    }
+}
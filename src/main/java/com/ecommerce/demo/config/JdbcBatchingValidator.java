@@ -0,0 +1,80 @@
+package com.ecommerce.demo.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Startup self-check of the settings that decide whether writes are batched. Nothing here fails the start,
+ * each finding is logged as a warning: a misconfiguration only costs throughput, and it is silent otherwise.
+ */
+@Component
+@Slf4j
+public class JdbcBatchingValidator {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private Environment environment;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void validate() {
+        List<String> findings = findings();
+        findings.forEach(finding -> log.warn("JDBC batching: {}", finding));
+        if (findings.isEmpty()) {
+            log.info("JDBC batching: settings checked, no findings");
+        }
+    }
+
+    List<String> findings() {
+        List<String> findings = new ArrayList<>();
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        SessionFactoryOptions options = sessionFactory.getSessionFactoryOptions();
+
+        int batchSize = options.getJdbcBatchSize();
+        if (batchSize <= 1) {
+            findings.add("hibernate.jdbc.batch_size is " + batchSize + ", every insert and update is sent on its own");
+        } else {
+            //the id of an IDENTITY entity is only known after its insert ran, so Hibernate executes it immediately
+            TreeSet<String> identityEntities = new TreeSet<>();
+            sessionFactory.getMappingMetamodel().forEachEntityDescriptor(persister -> {
+                if (persister.getGenerator() != null && persister.getGenerator().generatedOnExecution()) {
+                    identityEntities.add(persister.getMappedClass().getSimpleName());
+                }
+            });
+            if (!identityEntities.isEmpty()) {
+                findings.add("entities " + identityEntities + " use IDENTITY ids, their inserts are not batched "
+                        + "despite hibernate.jdbc.batch_size=" + batchSize + "; use a pooled sequence where they are inserted in bulk");
+            }
+            if (!options.isOrderInsertsEnabled()) {
+                findings.add("hibernate.order_inserts is off, inserts of different entities interleave and break batches");
+            }
+            if (!options.isOrderUpdatesEnabled()) {
+                findings.add("hibernate.order_updates is off, updates of different entities interleave and break batches");
+            }
+        }
+
+        //Connector/J sends a batch as separate statements unless it may rewrite it into a multi-row insert
+        String url = environment.getProperty("spring.datasource.url", "");
+        if (url.startsWith("jdbc:mysql:") && !url.contains("rewriteBatchedStatements=true")
+                && !environment.getProperty("spring.datasource.hikari.data-source-properties.rewriteBatchedStatements", Boolean.class, false)) {
+            findings.add("rewriteBatchedStatements is not enabled on the MySQL connection, batches are sent one statement at a time");
+        }
+
+        if (environment.getProperty("spring.jpa.show-sql", Boolean.class, false) && environment.matchesProfiles("prod")) {
+            findings.add("spring.jpa.show-sql is on in the prod profile, every statement is written to stdout");
+        }
+        return findings;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ecommerce.demo.config;
+
+import com.ecommerce.demo.services.ProductService;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.HazelcastCacheMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    public static final String ORDERS_PLACE_TIMER = "orders.place";
+    public static final String ORDERS_PLACE_BATCH_TIMER = "orders.place.batch";
+    public static final String ORDERS_UPDATE_TIMER = "orders.update";
+    public static final String ORDERS_LIST_TIMER = "orders.list";
+    public static final String ORDERS_INTAKE_COUNTER = "orders.intake";
+    public static final String ORDERS_INTAKE_LAG_TIMER = "orders.intake.lag";
+    public static final String STOCK_RESERVATIONS_COUNTER = "stock.reservations";
+    public static final String PAYMENTS_TIMER = "payments.make";
+    public static final String TRANSACTIONS_CONSUME_TIMER = "transactions.consume";
+    public static final String TRANSACTIONS_MESSAGES_COUNTER = "transactions.messages";
+    public static final String RABBITMQ_PUBLISH_TIMER = "rabbitmq.publish";
+    public static final String RABBITMQ_PUBLISH_FAILURES_COUNTER = "rabbitmq.publish.failures";
+    public static final String ADMISSION_REQUESTS_COUNTER = "admission.requests";
+
+    //enables @Timed on service methods
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    //Hazelcast map statistics (gets, hits, misses, puts, entries, near-cache) plus evictions and expirations
+    @Bean
+    public MeterBinder hazelcastCacheMetrics(HazelcastInstance hazelcastInstance, ProductService productService) {
+        return registry -> {
+            //a client keeps no map statistics, the members report them
+            String[] cacheNames = CacheConfig.isMember(hazelcastInstance)
+                    ? new String[]{CacheConfig.ORDERS_CACHE, CacheConfig.PRODUCTS_CACHE} : new String[0];
+            for (String cacheName : cacheNames) {
+                IMap<Object, Object> map = hazelcastInstance.getMap(cacheName);
+                Tags tags = Tags.of("cache", cacheName);
+                HazelcastCacheMetrics.monitor(registry, map);
+                //the Micrometer binder only reports hits for Hazelcast, misses are the gets that did not hit
+                FunctionCounter.builder("cache.gets", map, m -> Math.max(0,
+                                m.getLocalMapStats().getGetOperationCount() - m.getLocalMapStats().getHits()))
+                        .tags(tags.and("result", "miss"))
+                        .register(registry);
+                FunctionCounter.builder("cache.evictions", map, m -> m.getLocalMapStats().getEvictionCount())
+                        .tags(tags)
+                        .description("Entries evicted by the size policy")
+                        .register(registry);
+                FunctionCounter.builder("cache.expirations", map, m -> m.getLocalMapStats().getExpirationCount())
+                        .tags(tags)
+                        .description("Entries expired by time-to-live or max-idle")
+                        .register(registry);
+            }
+            FunctionCounter.builder("products.lookups", productService, ProductService::getCacheHits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("products.lookups", productService, ProductService::getCacheMisses)
+                    .tag("result", "miss")
+                    .register(registry);
+        };
+    }
+}
@@ -1,13 +1,19 @@
 package com.ecommerce.demo.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
 
 @Configuration
 public class RabbitMQConfig {
@@ -16,9 +22,26 @@ public class RabbitMQConfig {
     public static final String EXCHANGE  = "rabbit_mq_exchange";
     public static final String ROUTING_KEY  = "rabbit_mq_r_key";
 
+    public static final String ORDER_INTAKE_QUEUE  = "order_intake_queue";
+    public static final String ORDER_INTAKE_ROUTING_KEY  = "order_intake_r_key";
+
+    public static final String DEAD_LETTER_QUEUE  = "rabbit_mq_dlq";
+    public static final String DEAD_LETTER_EXCHANGE  = "rabbit_mq_dlx";
+    public static final String DEAD_LETTER_ROUTING_KEY  = "rabbit_mq_dl_key";
+
+    public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+    public static final String CBOR_CONTENT_TYPE = "application/cbor";
+    static final String[] TRUSTED_PACKAGES = {"com.ecommerce.demo.dtos", "com.ecommerce.demo.entity"};
+
+    public static final String TRANSACTION_BATCH_LISTENER_FACTORY = "transactionBatchListenerFactory";
+    public static final String ORDER_INTAKE_LISTENER_FACTORY = "orderIntakeListenerFactory";
+
     @Bean
     public Queue queue(){
-        return new Queue(QUEUE);
+        return QueueBuilder.durable(QUEUE)
+                .deadLetterExchange(DEAD_LETTER_EXCHANGE)
+                .deadLetterRoutingKey(DEAD_LETTER_ROUTING_KEY)
+                .build();
     }
 
     @Bean
@@ -30,15 +53,118 @@ public class RabbitMQConfig {
         return  BindingBuilder.bind(queue).to(directExchange).with(ROUTING_KEY);
     }
 
+    //Orders accepted with 202 wait here until a worker places them in batches
+    @Bean
+    public Queue orderIntakeQueue(){
+        return QueueBuilder.durable(ORDER_INTAKE_QUEUE)
+                .deadLetterExchange(DEAD_LETTER_EXCHANGE)
+                .deadLetterRoutingKey(DEAD_LETTER_ROUTING_KEY)
+                .build();
+    }
+
+    @Bean
+    public Binding orderIntakeBinding(){
+        return BindingBuilder.bind(orderIntakeQueue()).to(directExchange()).with(ORDER_INTAKE_ROUTING_KEY);
+    }
+
+    @Bean
+    public Queue deadLetterQueue(){
+        return new Queue(DEAD_LETTER_QUEUE);
+    }
+
+    @Bean
+    public DirectExchange deadLetterExchange(){
+        return new DirectExchange(DEAD_LETTER_EXCHANGE);
+    }
+
+    @Bean
+    public Binding deadLetterBinding(){
+        return BindingBuilder.bind(deadLetterQueue()).to(deadLetterExchange()).with(DEAD_LETTER_ROUTING_KEY);
+    }
+
+    //Publishes in rabbitmq.message-format (json, smile or cbor) but reads all three, so the format can change without draining the queue
     @Bean
-    public MessageConverter messageConverter(){
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter(@Value("${rabbitmq.message-format:json}") String messageFormat){
+        MessageConverter json = new Jackson2JsonMessageConverter(Jackson2ObjectMapperBuilder.json().build(), TRUSTED_PACKAGES);
+        MessageConverter smile = new JacksonBinaryMessageConverter(Jackson2ObjectMapperBuilder.smile().build(), SMILE_CONTENT_TYPE);
+        MessageConverter cbor = new JacksonBinaryMessageConverter(Jackson2ObjectMapperBuilder.cbor().build(), CBOR_CONTENT_TYPE);
+
+        MessageConverter publishConverter = switch (messageFormat) {
+            case "smile" -> smile;
+            case "cbor" -> cbor;
+            case "json" -> json;
+            default -> throw new IllegalArgumentException("Unsupported rabbitmq.message-format: " + messageFormat);
+        };
+
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(publishConverter);
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, json);
+        converter.addDelegate(SMILE_CONTENT_TYPE, smile);
+        converter.addDelegate(CBOR_CONTENT_TYPE, cbor);
+        return converter;
     }
 
     @Bean
-    public AmqpTemplate getTemplate(ConnectionFactory connectionFactory){
+    public AmqpTemplate getTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter){
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(messageConverter());
+        rabbitTemplate.setMessageConverter(messageConverter);
         return rabbitTemplate;
     }
+
+    //A delivery whose listener keeps failing is retried with backoff on the same thread, then its messages go to the
+    //dead letter exchange instead of being redelivered in a loop that blocks the queue
+    @Bean
+    public RetryOperationsInterceptor listenerRetryInterceptor(
+            RabbitTemplate rabbitTemplate,
+            @Value("${rabbitmq.listener.retry.max-attempts:5}") int maxAttempts,
+            @Value("${rabbitmq.listener.retry.initial-interval-ms:500}") long initialInterval,
+            @Value("${rabbitmq.listener.retry.max-interval-ms:10000}") long maxInterval){
+        return RetryInterceptorBuilder.stateless()
+                .maxAttempts(maxAttempts)
+                .backOffOptions(initialInterval, 2.0, maxInterval)
+                .recoverer(new DeadLetterBatchRecoverer(rabbitTemplate))
+                .build();
+    }
+
+    //Delivers up to batch-size messages per listener call, or fewer once receive-timeout passes without new messages
+    @Bean(TRANSACTION_BATCH_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory transactionBatchListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            RetryOperationsInterceptor listenerRetryInterceptor,
+            @Value("${transactions.consumer.batch-size:100}") int batchSize,
+            @Value("${transactions.consumer.receive-timeout-ms:200}") long receiveTimeout,
+            @Value("${transactions.consumer.concurrency:2}") int concurrency,
+            @Value("${transactions.consumer.max-concurrency:8}") int maxConcurrency){
+        return batchListenerFactory(configurer, connectionFactory, listenerRetryInterceptor, batchSize, receiveTimeout, concurrency, maxConcurrency);
+    }
+
+    @Bean(ORDER_INTAKE_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory orderIntakeListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            RetryOperationsInterceptor listenerRetryInterceptor,
+            @Value("${orders.intake.consumer.batch-size:100}") int batchSize,
+            @Value("${orders.intake.consumer.receive-timeout-ms:100}") long receiveTimeout,
+            @Value("${orders.intake.consumer.concurrency:2}") int concurrency,
+            @Value("${orders.intake.consumer.max-concurrency:4}") int maxConcurrency){
+        return batchListenerFactory(configurer, connectionFactory, listenerRetryInterceptor, batchSize, receiveTimeout, concurrency, maxConcurrency);
+    }
+
+    private SimpleRabbitListenerContainerFactory batchListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            RetryOperationsInterceptor retryInterceptor, int batchSize, long receiveTimeout, int concurrency, int maxConcurrency){
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize * 2);
+        factory.setReceiveTimeout(receiveTimeout);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(maxConcurrency);
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setDefaultRequeueRejected(false);
+        factory.setAdviceChain(retryInterceptor);
+        return factory;
+    }
 }
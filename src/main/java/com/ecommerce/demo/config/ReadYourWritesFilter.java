@@ -0,0 +1,68 @@
+package com.ecommerce.demo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Read-your-writes for clients of the replica: a request that writes (POST /orders, POST /payments, ...)
+ * gets a cookie, and while it is valid the client's reads run on the primary, so a placed order or payment
+ * is visible to the next GET even when the replica lags behind.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "rw-primary";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final int stickinessSeconds;
+
+    public ReadYourWritesFilter(int stickinessSeconds) {
+        this.stickinessSeconds = stickinessSeconds;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        //set before the chain runs, the response may be committed by the time it returns
+        if (!READ_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(now + stickinessSeconds * 1000L));
+            cookie.setMaxAge(stickinessSeconds);
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+        if (wroteRecently(request, now)) {
+            ReadWriteRoutingDataSource.pinToPrimary();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadWriteRoutingDataSource.unpin();
+        }
+    }
+
+    //the cookie carries its own expiry, for clients that keep cookies past Max-Age
+    private boolean wroteRecently(HttpServletRequest request, long now) {
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > now;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
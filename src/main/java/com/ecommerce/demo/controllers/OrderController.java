@@ -1,15 +1,26 @@
 package com.ecommerce.demo.controllers;
 
+import com.ecommerce.demo.dtos.BatchOrderResult;
+import com.ecommerce.demo.dtos.CursorPage;
+import com.ecommerce.demo.dtos.OrderIntakeStatus;
 import com.ecommerce.demo.dtos.OrderRequest;
 import com.ecommerce.demo.dtos.OrderResponse;
 import com.ecommerce.demo.entity.CustomerOrder;
+import com.ecommerce.demo.services.AdmissionControlService;
+import com.ecommerce.demo.services.OrderIntakeService;
 import com.ecommerce.demo.services.OrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/orders")
@@ -19,9 +30,28 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
+    //when true POST /orders queues the order and answers 202 with a tracking id instead of placing it inline
+    @Value("${orders.intake.async:false}")
+    private boolean asyncIntake;
+
     @GetMapping
-    public ResponseEntity<List<OrderResponse>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<CursorPage<OrderResponse>> getAllOrders(@RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = CursorPage.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(orderService.getAllOrders(afterId, CursorPage.clampLimit(limit)));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOrders() {
+        return ndjsonWriter.stream(orderService::streamAllOrders);
     }
 
     @GetMapping("/{id}")
@@ -30,10 +60,32 @@ public class OrderController {
     }
 
     @PostMapping
-    public ResponseEntity<OrderResponse> placeOrder(@RequestBody OrderRequest orderRequest) {
+    public ResponseEntity<?> placeOrder(@RequestBody OrderRequest orderRequest) {
+        admissionControlService.admit("orders", orderRequest.getUserId());
+        if(asyncIntake){
+            OrderIntakeStatus status = orderIntakeService.submitOrder(orderRequest);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/orders/requests/" + status.getTrackingId()))
+                    .body(status);
+        }
         return ResponseEntity.ok(orderService.placeOrder(orderRequest));
     }
 
+    @GetMapping("/requests/{trackingId}")
+    public ResponseEntity<OrderIntakeStatus> getOrderRequestStatus(@PathVariable String trackingId) {
+        return ResponseEntity.ok(orderIntakeService.getStatus(trackingId));
+    }
+
+    //Per-order results; invalid orders are reported and skipped, the rest are placed together
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchOrderResult>> placeOrders(@RequestBody List<OrderRequest> orderRequests) {
+        //one token per order, a batch is as much load as the same orders sent one by one
+        Map<Long, Integer> ordersByUser = new HashMap<>();
+        orderRequests.forEach(orderRequest -> ordersByUser.merge(orderRequest.getUserId(), 1, Integer::sum));
+        admissionControlService.admit("orders-batch", ordersByUser);
+        return ResponseEntity.ok(orderService.placeOrders(orderRequests));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<OrderResponse> updateOrder(@PathVariable Long id, @RequestBody OrderRequest orderRequest) {
         return ResponseEntity.ok(orderService.updateOrder(id, orderRequest));
@@ -1,14 +1,16 @@
 package com.ecommerce.demo.controllers;
 
+import com.ecommerce.demo.dtos.CursorPage;
 import com.ecommerce.demo.dtos.PaymentRequest;
-import com.ecommerce.demo.entity.Payment;
+import com.ecommerce.demo.dtos.PaymentResponse;
+import com.ecommerce.demo.services.AdmissionControlService;
 import com.ecommerce.demo.services.PaymentService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/payments")
@@ -18,18 +20,31 @@ public class PaymentController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
     @PostMapping
-    public ResponseEntity<Payment> makePayment(@RequestBody PaymentRequest paymentRequest){
-        return ResponseEntity.ok(paymentService.makePayment(paymentRequest));
+    public ResponseEntity<PaymentResponse> makePayment(@RequestBody PaymentRequest paymentRequest){
+        admissionControlService.admit("payments", paymentRequest.getUserId());
+        return ResponseEntity.ok(PaymentService.mapToPaymentResponse(paymentService.makePayment(paymentRequest)));
     }
 
     @GetMapping
-    public ResponseEntity<List<Payment>> getAllPayments(){
-        return ResponseEntity.ok(paymentService.getAllPayments());
+    public ResponseEntity<CursorPage<PaymentResponse>> getAllPayments(@RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = CursorPage.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(paymentService.getAllPayments(afterId, CursorPage.clampLimit(limit)));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPayments() {
+        return ndjsonWriter.stream(paymentService::streamAllPayments);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Payment> getPaymentById(@PathVariable Long id){
+    public ResponseEntity<PaymentResponse> getPaymentById(@PathVariable Long id){
         return ResponseEntity.ok(paymentService.getPaymentById(id));
     }
 }
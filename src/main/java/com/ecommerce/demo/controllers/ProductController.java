@@ -1,15 +1,19 @@
 package com.ecommerce.demo.controllers;
 
-import com.ecommerce.demo.entity.Product;
+import com.ecommerce.demo.dtos.CursorPage;
+import com.ecommerce.demo.dtos.StockLevel;
+import com.ecommerce.demo.dtos.StockRequest;
+import com.ecommerce.demo.dtos.ProductResponse;
 import com.ecommerce.demo.entity.Product;
 import com.ecommerce.demo.services.ProductService;
+import com.ecommerce.demo.services.StockService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/products")
@@ -19,19 +23,41 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
     @PostMapping
-    public ResponseEntity<Product> createProduct(@RequestBody Product product) {
+    public ResponseEntity<ProductResponse> createProduct(@RequestBody Product product) {
         Product createdProduct = productService.createProduct(product);
-        return ResponseEntity.ok(createdProduct);
+        return ResponseEntity.ok(ProductService.mapToProductResponse(createdProduct));
     }
 
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts(){
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<CursorPage<ProductResponse>> getAllProducts(@RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = CursorPage.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(productService.getAllProducts(afterId, CursorPage.clampLimit(limit)));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamProducts() {
+        return ndjsonWriter.stream(productService::streamAllProducts);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id){
-        return ResponseEntity.ok(productService.getProductById(id));
+    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id){
+        return ResponseEntity.ok(productService.getProductResponseById(id));
+    }
+
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<StockLevel> getStock(@PathVariable Long id){
+        return ResponseEntity.ok(stockService.getStock(id));
+    }
+
+    @PutMapping("/{id}/stock")
+    public ResponseEntity<StockLevel> setStock(@PathVariable Long id, @RequestBody StockRequest stockRequest){
+        return ResponseEntity.ok(stockService.setStock(id, stockRequest.getQuantity()));
     }
 }
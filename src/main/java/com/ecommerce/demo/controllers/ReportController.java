@@ -0,0 +1,41 @@
+package com.ecommerce.demo.controllers;
+
+import com.ecommerce.demo.entity.DailySales;
+import com.ecommerce.demo.entity.ProductSales;
+import com.ecommerce.demo.entity.UserSales;
+import com.ecommerce.demo.services.ReportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+//Read-only sales reports served from the aggregate tables
+@RestController
+@RequestMapping("/reports")
+@Slf4j
+public class ReportController {
+
+    @Autowired
+    private ReportService reportService;
+
+    @GetMapping("/users/{userId}")
+    public ResponseEntity<UserSales> getUserSales(@PathVariable Long userId) {
+        return ResponseEntity.ok(reportService.getUserSales(userId));
+    }
+
+    @GetMapping("/products/{productId}")
+    public ResponseEntity<ProductSales> getProductSales(@PathVariable Long productId) {
+        return ResponseEntity.ok(reportService.getProductSales(productId));
+    }
+
+    @GetMapping("/daily")
+    public ResponseEntity<List<DailySales>> getDailySales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(reportService.getDailySales(from, to));
+    }
+}
@@ -1,14 +1,24 @@
 package com.ecommerce.demo.controllers;
 
-import com.ecommerce.demo.entity.Payment;
+import com.ecommerce.demo.dtos.CursorPage;
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.dtos.PaymentResponse;
+import com.ecommerce.demo.dtos.UserResponse;
+import com.ecommerce.demo.entity.OrderStatus;
+import com.ecommerce.demo.entity.PaymentStatus;
 import com.ecommerce.demo.entity.User;
+import com.ecommerce.demo.services.OrderService;
+import com.ecommerce.demo.services.PaymentService;
 import com.ecommerce.demo.services.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/users")
@@ -18,19 +28,56 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
     @PostMapping
-    public ResponseEntity<User> createUser(@RequestBody User user) {
+    public ResponseEntity<UserResponse> createUser(@RequestBody User user) {
         User createdUser = userService.createUser(user);
-        return ResponseEntity.ok(createdUser);
+        return ResponseEntity.ok(UserService.mapToUserResponse(createdUser));
     }
 
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers(){
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<CursorPage<UserResponse>> getAllUsers(@RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = CursorPage.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(userService.getAllUsers(afterId, CursorPage.clampLimit(limit)));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        return ndjsonWriter.stream(userService::streamAllUsers);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id){
-        return ResponseEntity.ok(userService.getUserById(id));
+    public ResponseEntity<UserResponse> getUserById(@PathVariable Long id){
+        return ResponseEntity.ok(userService.getUserResponseById(id));
+    }
+
+    @GetMapping("/{id}/orders")
+    public ResponseEntity<CursorPage<OrderResponse>> getUserOrders(@PathVariable Long id,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeCreatedOn,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = CursorPage.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(orderService.getUserOrders(id, status, from, to, beforeCreatedOn, beforeId, CursorPage.clampLimit(limit)));
+    }
+
+    @GetMapping("/{id}/payments")
+    public ResponseEntity<CursorPage<PaymentResponse>> getUserPayments(@PathVariable Long id,
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeCreatedOn,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = CursorPage.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(paymentService.getUserPayments(id, status, from, to, beforeCreatedOn, beforeId, CursorPage.clampLimit(limit)));
     }
 }
@@ -0,0 +1,25 @@
+package com.ecommerce.demo.dtos;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+//Outcome of one order of a POST /orders/batch request, in request order
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchOrderResult {
+
+    //position of the order in the request
+    private int index;
+
+    private boolean success;
+
+    private Long orderId;
+
+    private BigDecimal orderAmount;
+
+    private String error;
+}
@@ -0,0 +1,53 @@
+package com.ecommerce.demo.dtos;
+
+import lombok.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> implements Serializable {
+
+    //to enable caching by hazelcast
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final String DEFAULT_LIMIT = "50";
+    public static final int MAX_LIMIT = 500;
+
+    private List<T> items;
+
+    //pass as afterId to fetch the next page, null when this is the last page
+    private Long nextAfterId;
+
+    //pages sorted by creation time: pass as beforeCreatedOn together with nextAfterId
+    private LocalDateTime nextCreatedOn;
+
+    //first page of a newest-first keyset, later than any row (MySQL datetime tops out at year 9999)
+    public static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    //rows are expected to be fetched with limit + 1 so the extra row tells whether another page exists
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, Long> idExtractor) {
+        return of(rows, limit, idExtractor, row -> null);
+    }
+
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, Long> idExtractor,
+                                       Function<T, LocalDateTime> createdOnExtractor) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        T last = items.get(limit - 1);
+        return new CursorPage<>(List.copyOf(items), idExtractor.apply(last), createdOnExtractor.apply(last));
+    }
+}
@@ -0,0 +1,20 @@
+package com.ecommerce.demo.dtos;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+//Message published to the order intake queue for every order accepted with 202
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderIntakeMessage {
+
+    private String trackingId;
+
+    private OrderRequest orderRequest;
+
+    private LocalDateTime acceptedOn;
+}
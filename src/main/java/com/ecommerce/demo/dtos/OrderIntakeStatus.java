@@ -0,0 +1,40 @@
+package com.ecommerce.demo.dtos;
+
+import lombok.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//Progress of an order accepted by the async intake, kept in Hazelcast and returned by GET /orders/requests/{trackingId}
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderIntakeStatus implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public enum State {
+        QUEUED, PLACED, FAILED
+    }
+
+    private String trackingId;
+
+    private State state;
+
+    //set once the order is placed
+    private Long orderId;
+
+    private BigDecimal orderAmount;
+
+    //set when the order could not be placed
+    private String error;
+
+    private LocalDateTime acceptedOn;
+
+    private LocalDateTime completedOn;
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.demo.dtos;
+
+//Read-side projection of an order line, loaded without materializing OrderProduct/Product entities
+public record OrderLineView(Long orderId, Long id, Long productId, int quantity) {
+
+    public OrderProductResponse toResponse() {
+        return OrderProductResponse.builder()
+                .id(id)
+                .productId(productId)
+                .quantity(quantity)
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.ecommerce.demo.dtos;
 
+import com.ecommerce.demo.entity.Money;
 import com.ecommerce.demo.entity.OrderProduct;
 import com.ecommerce.demo.entity.OrderStatus;
 import com.ecommerce.demo.entity.User;
@@ -37,4 +38,10 @@ public class OrderResponse implements Serializable {
     private LocalDateTime createdOn;
 
     private  LocalDateTime updatedOn;
+
+    //used by the JPQL constructor projection, order lines are attached afterwards
+    public OrderResponse(Long id, Long userId, Money orderAmount, OrderStatus orderStatus,
+                         LocalDateTime createdOn, LocalDateTime updatedOn) {
+        this(id, userId, List.of(), orderAmount.toBigDecimal(), orderStatus, createdOn, updatedOn);
+    }
 }
@@ -0,0 +1,41 @@
+package com.ecommerce.demo.dtos;
+
+import com.ecommerce.demo.entity.Money;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//Message published to the transaction queue for every successful payment
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaymentEvent {
+
+    //bump when fields change incompatibly so consumers can branch on it
+    public static final int CURRENT_VERSION = 1;
+
+    private int version;
+
+    //outbox event id, unique per published event
+    private Long eventId;
+
+    private Long paymentId;
+
+    private Long orderId;
+
+    private Long userId;
+
+    private BigDecimal amount;
+
+    private LocalDateTime paidOn;
+
+    private LocalDateTime publishedOn;
+
+    //used by the JPQL constructor projection in PaymentRepository
+    public PaymentEvent(Long paymentId, Long orderId, Long userId, Money amount, LocalDateTime paidOn) {
+        this(CURRENT_VERSION, null, paymentId, orderId, userId, amount.toBigDecimal(), paidOn, null);
+    }
+}
@@ -3,6 +3,7 @@ package com.ecommerce.demo.dtos;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.*;
 
 import java.math.BigDecimal;
@@ -21,4 +22,12 @@ public class PaymentRequest {
 
     @Positive
     private BigDecimal amount;
+
+    //optional client generated key, a retried request with the same key returns the original payment
+    @Size(max = 64)
+    private String idempotencyKey;
+
+    public PaymentRequest(Long orderId, Long userId, BigDecimal amount) {
+        this(orderId, userId, amount, null);
+    }
 }
@@ -0,0 +1,37 @@
+package com.ecommerce.demo.dtos;
+
+import com.ecommerce.demo.entity.Money;
+import com.ecommerce.demo.entity.PaymentStatus;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//Payment read model filled by a JPQL constructor projection, without loading the order or the user
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaymentResponse {
+
+    private Long id;
+
+    private Long orderId;
+
+    private Long userId;
+
+    private BigDecimal receivedAmount;
+
+    private PaymentStatus paymentStatus;
+
+    private String errorMessage;
+
+    private LocalDateTime createdOn;
+
+    //used by the JPQL constructor projections in PaymentRepository
+    public PaymentResponse(Long id, Long orderId, Long userId, Money receivedAmount, PaymentStatus paymentStatus,
+                           String errorMessage, LocalDateTime createdOn) {
+        this(id, orderId, userId, receivedAmount.toBigDecimal(), paymentStatus, errorMessage, createdOn);
+    }
+}
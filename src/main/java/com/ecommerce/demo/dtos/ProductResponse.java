@@ -0,0 +1,34 @@
+package com.ecommerce.demo.dtos;
+
+import com.ecommerce.demo.entity.Money;
+import lombok.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+//Product read model filled by a JPQL constructor projection; serializable for the product list cache
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductResponse implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private String productName;
+
+    private BigDecimal price;
+
+    //as of the last stock write-back, GET /products/{id}/stock has the live quantities
+    private Integer stockQuantity;
+
+    //used by the JPQL constructor projections in ProductRepository
+    public ProductResponse(Long id, String productName, Money price, Integer stockQuantity) {
+        this(id, productName, price.toBigDecimal(), stockQuantity);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.demo.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+//Live stock of one product in the Hazelcast stock map; changed only by the entry processors in StockService
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StockLevel implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Long productId;
+
+    //false when the product has no stock quantity, orders for it are never limited
+    private boolean tracked;
+
+    //units in the warehouse, including reserved ones; written back to product.stock_quantity
+    private long onHand;
+
+    //units held by pending orders
+    private long reserved;
+
+    //onHand changed since the last write-back
+    @JsonIgnore
+    private boolean dirty;
+
+    public long getAvailable() {
+        return onHand - reserved;
+    }
+}
@@ -0,0 +1,18 @@
+package com.ecommerce.demo.dtos;
+
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockRequest {
+
+    //units on hand; null stops tracking stock for the product
+    @PositiveOrZero
+    private Integer quantity;
+}
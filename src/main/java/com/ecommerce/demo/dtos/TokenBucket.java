@@ -0,0 +1,29 @@
+package com.ecommerce.demo.dtos;
+
+import lombok.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+//One token bucket in the Hazelcast rate-limit map; changed only by the entry processors in AdmissionControlService
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TokenBucket implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    //tokens left at updatedAtMillis, fractional so slow refill rates do not round away
+    private double tokens;
+
+    private long updatedAtMillis;
+
+    //Tokens held at the given time: refilled at refillPerSecond since the last update, never above capacity
+    public double tokensAt(long nowMillis, int capacity, double refillPerSecond) {
+        long elapsedMillis = Math.max(0, nowMillis - updatedAtMillis);
+        return Math.min(capacity, tokens + elapsedMillis * refillPerSecond / 1000);
+    }
+}
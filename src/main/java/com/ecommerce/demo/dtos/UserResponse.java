@@ -0,0 +1,20 @@
+package com.ecommerce.demo.dtos;
+
+import lombok.*;
+
+//User read model filled by a JPQL constructor projection, without the orders and payments collections
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserResponse {
+
+    private Long id;
+
+    private String userName;
+
+    private String email;
+
+    private String phone;
+}
@@ -1,12 +1,13 @@
 package com.ecommerce.demo.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -16,26 +17,43 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+//per-user history: keyset pages on (createdOn, id) read the index in order without a sort
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_customer_order_intake_tracking_id", columnNames = "intakeTrackingId"),
+        indexes = {
+        @Index(name = "idx_customer_order_user_created", columnList = "user_id, createdOn, id"),
+        @Index(name = "idx_customer_order_user_status", columnList = "user_id, orderStatus, createdOn, id")
+})
 public class CustomerOrder {
 
+    //pooled hi/lo ids so orders can be inserted with JDBC batching (IDENTITY disables it);
+    //MySQL has no sequences, Hibernate keeps the hi value in the customer_order_seq table
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_order_seq")
+    @SequenceGenerator(name = "customer_order_seq", sequenceName = "customer_order_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    //lines dropped from the list are deleted, an order update only touches the lines that changed
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     private List<OrderProduct> orderProducts;
 
-    @Column(nullable = false)
-    private BigDecimal orderAmount;
+    @Column(nullable = false, precision = 19, scale = 2)
+    private Money orderAmount;
 
-    @OneToMany(mappedBy = "order", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "order")
     @JsonIgnore
     private List<Payment> payments;
 
+    //set for orders placed from the intake queue; a redelivered message finds its order by it
+    @Column(length = 36)
+    @JsonIgnore
+    private String intakeTrackingId;
+
     @Enumerated(EnumType.STRING)
     private OrderStatus orderStatus = OrderStatus.Pending;
 
@@ -45,5 +63,9 @@ public class CustomerOrder {
     @UpdateTimestamp
     private  LocalDateTime updatedOn;
 
+    //concurrent status changes fail with an optimistic lock error instead of overwriting each other
+    @Version
+    private Long version;
+
 
 }
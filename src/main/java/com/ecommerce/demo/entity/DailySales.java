@@ -0,0 +1,30 @@
+package com.ecommerce.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//Paid orders and revenue per day the transaction was recorded, kept up to date by TransactionService
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "daily_sales")
+public class DailySales {
+
+    @Id
+    private LocalDate salesDate;
+
+    @Column(nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    private LocalDateTime updatedOn;
+}
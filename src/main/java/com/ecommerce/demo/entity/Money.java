@@ -0,0 +1,126 @@
+package com.ecommerce.demo.entity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * An amount of money as a whole number of minor units (cents) of a currency. Pricing adds and multiplies longs
+ * instead of allocating a BigDecimal per step, overflow throws instead of wrapping. Amounts only become
+ * BigDecimal at the edges: JSON, DTOs and the DECIMAL(19,2) columns via {@link MoneyConverter}.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    //to enable caching by hazelcast
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    //the columns store no currency, every persisted amount is in this one
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+    public static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+
+    private final long minorUnits;
+
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return ofMinor(minorUnits, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    //Exact conversion: an amount with more decimals than the currency has is rejected, not silently rounded
+    @JsonCreator
+    public static Money of(BigDecimal amount) {
+        try {
+            return of(amount, RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount + " has more than "
+                    + DEFAULT_CURRENCY.getDefaultFractionDigits() + " decimal places");
+        }
+    }
+
+    public static Money of(BigDecimal amount, RoundingMode roundingMode) {
+        return of(amount, DEFAULT_CURRENCY, roundingMode);
+    }
+
+    public static Money of(BigDecimal amount, Currency currency, RoundingMode roundingMode) {
+        return new Money(amount.setScale(currency.getDefaultFractionDigits(), roundingMode)
+                .unscaledValue().longValueExact(), currency);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity), currency);
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return compareTo(other) > 0;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getDefaultFractionDigits());
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    private void checkCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+    }
+}
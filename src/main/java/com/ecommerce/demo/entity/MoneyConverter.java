@@ -0,0 +1,23 @@
+package com.ecommerce.demo.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+//Maps every Money attribute to a DECIMAL(19,2) column in Money.DEFAULT_CURRENCY;
+//rows written before the columns had a scale hold whole amounts, which convert exactly
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.toBigDecimal();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal amount) {
+        return amount == null ? null : Money.of(amount, RoundingMode.HALF_EVEN);
+    }
+}
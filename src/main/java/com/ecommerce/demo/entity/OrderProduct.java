@@ -12,18 +12,24 @@ import lombok.*;
 @Builder
 public class OrderProduct {
 
+    //pooled like CustomerOrder so order lines are batch inserted too
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_product_seq")
+    @SequenceGenerator(name = "order_product_seq", sequenceName = "order_product_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
     @JsonIgnore
     private CustomerOrder order;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
     private int quantity;
+
+    //price the line was ordered at; sales reports sum it instead of the product's current price
+    @Column(precision = 19, scale = 2)
+    private Money unitPrice;
 }
@@ -0,0 +1,33 @@
+package com.ecommerce.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+//Written in the same transaction as the payment, published to RabbitMQ later by OutboxRelayService
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(indexes = @Index(name = "idx_outbox_event_published_on", columnList = "publishedOn, id"))
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    @CreationTimestamp
+    private LocalDateTime createdOn;
+
+    private LocalDateTime publishedOn;
+}
@@ -5,7 +5,6 @@ import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -14,6 +13,12 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_payment_idempotency_key", columnNames = "idempotencyKey"),
+        //per-user history: keyset pages on (createdOn, id) read the index in order without a sort
+        indexes = {
+                @Index(name = "idx_payment_user_created", columnList = "user_id, createdOn, id"),
+                @Index(name = "idx_payment_user_status", columnList = "user_id, paymentStatus, createdOn, id")
+        })
 public class Payment {
 
     @Id
@@ -28,14 +33,17 @@ public class Payment {
     @JoinColumn(name = "user_id")
     private User user;
 
-    @Column(nullable = false)
-    private BigDecimal receivedAmount;
+    @Column(nullable = false, precision = 19, scale = 2)
+    private Money receivedAmount;
 
     @Enumerated(EnumType.STRING)
     private PaymentStatus paymentStatus;
 
     private String errorMessage;
 
+    @Column(length = 64)
+    private String idempotencyKey;
+
     @CreationTimestamp
     private LocalDateTime createdOn;
 
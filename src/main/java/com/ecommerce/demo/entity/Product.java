@@ -1,10 +1,12 @@
 package com.ecommerce.demo.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
+import java.io.Serial;
+import java.io.Serializable;
 import java.util.List;
 
 @Entity
@@ -13,7 +15,13 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
-public class Product {
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@EntityListeners(ProductCacheListener.class)
+public class Product implements Serializable {
+
+    //to enable caching by hazelcast
+    @Serial
+    private static final long serialVersionUID = 1L;
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,8 +30,11 @@ public class Product {
     @Column(nullable = false)
     private String productName;
 
-    @Column(nullable = false)
-    private BigDecimal price;
+    @Column(nullable = false, precision = 19, scale = 2)
+    private Money price;
+
+    //null when stock is not tracked; live quantities are in StockService, written back here periodically
+    private Integer stockQuantity;
 
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL)
     @JsonIgnore
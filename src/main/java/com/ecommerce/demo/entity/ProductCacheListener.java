@@ -0,0 +1,28 @@
+package com.ecommerce.demo.entity;
+
+import com.ecommerce.demo.config.CacheConfig;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+//Keeps the product cache consistent when a product row changes outside ProductService.createProduct.
+//Evicts through the transaction-aware cache manager, so the entries go once the change commits, like the order caches;
+//evicted at flush, a concurrent reader could cache the row as it was before the commit
+@Component
+public class ProductCacheListener {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @PostUpdate
+    @PostRemove
+    public void evict(Product product){
+        Optional.ofNullable(cacheManager.getCache(CacheConfig.PRODUCTS_CACHE)).ifPresent(cache -> cache.evict(product.getId()));
+        Optional.ofNullable(cacheManager.getCache(CacheConfig.PRODUCT_LIST_CACHE)).ifPresent(Cache::clear);
+    }
+}
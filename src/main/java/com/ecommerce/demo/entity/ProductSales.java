@@ -0,0 +1,29 @@
+package com.ecommerce.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//Units sold and revenue per product, kept up to date by TransactionService and rebuilt by ReportService
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "product_sales")
+public class ProductSales {
+
+    @Id
+    private Long productId;
+
+    @Column(nullable = false)
+    private long unitsSold;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    private LocalDateTime updatedOn;
+}
@@ -14,12 +14,18 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+//one row per payment, however often its event is delivered
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_transaction_payment", columnNames = "payment_id"))
 public class Transaction {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @OneToOne
+    @JoinColumn(name = "payment_id")
+    private Payment payment;
+
     @OneToOne
     private CustomerOrder customerOrder;
 
@@ -27,7 +33,7 @@ public class Transaction {
     @JoinColumn(name = "user_id")
     private User user;
 
-    @Column(nullable = false)
+    @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal amount;
 
     @CreationTimestamp
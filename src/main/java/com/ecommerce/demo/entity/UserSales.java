@@ -0,0 +1,29 @@
+package com.ecommerce.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//Paid orders and revenue per user, kept up to date by TransactionService and rebuilt by ReportService
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "user_sales")
+public class UserSales {
+
+    @Id
+    private Long userId;
+
+    @Column(nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    private LocalDateTime updatedOn;
+}
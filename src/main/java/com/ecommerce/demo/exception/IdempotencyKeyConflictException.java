@@ -0,0 +1,10 @@
+package com.ecommerce.demo.exception;
+
+//Thrown when an idempotency key is reused for a different request; answered with 409 so the client
+//does not take the stored payment for the outcome of the request it just sent
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,9 @@
+package com.ecommerce.demo.exception;
+
+//Thrown when a reservation cannot take every unit it asks for; nothing stays reserved when it is thrown
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
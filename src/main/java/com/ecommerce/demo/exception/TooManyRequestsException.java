@@ -0,0 +1,22 @@
+package com.ecommerce.demo.exception;
+
+//Thrown when admission control turns a request away; answered with 429 and a Retry-After header.
+//Rejections are frequent under overload, so no stack trace is filled in
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public TooManyRequestsException(String message, long retryAfterMillis) {
+        super(message, null, false, false);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    //Retry-After is in whole seconds, rounded up so a client retrying on time finds a token
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+}
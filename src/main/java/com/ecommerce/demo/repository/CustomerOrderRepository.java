@@ -1,9 +1,57 @@
 package com.ecommerce.demo.repository;
 
+import com.ecommerce.demo.dtos.OrderResponse;
 import com.ecommerce.demo.entity.CustomerOrder;
+import com.ecommerce.demo.entity.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface CustomerOrderRepository extends JpaRepository<CustomerOrder,Long> {
+
+    String ORDER_RESPONSE = "select new com.ecommerce.demo.dtos.OrderResponse("
+            + "o.id, o.user.id, o.orderAmount, o.orderStatus, o.createdOn, o.updatedOn) from CustomerOrder o ";
+
+    //write paths that modify the lines load them in the same select
+    @EntityGraph(attributePaths = "orderProducts")
+    Optional<CustomerOrder> findWithOrderProductsById(Long id);
+
+    @Query(ORDER_RESPONSE + "where o.id = :id")
+    Optional<OrderResponse> findOrderResponseById(Long id);
+
+    //keyset page: seeks on the primary key index instead of OFFSET scanning
+    @Query(ORDER_RESPONSE + "where o.id > :afterId order by o.id")
+    List<OrderResponse> findOrderResponsesAfter(Long afterId, Limit limit);
+
+    //per-user history, newest first; unset filters are passed as null. Keyset on (createdOn, id) so the
+    //(user_id, created_on, id) index serves the date range and the order without a sort
+    @Query(ORDER_RESPONSE + "where o.user.id = :userId "
+            + "and (o.createdOn < :beforeCreatedOn or (o.createdOn = :beforeCreatedOn and o.id < :beforeId)) "
+            + "and (:status is null or o.orderStatus = :status) "
+            + "and (:from is null or o.createdOn >= :from) and (:to is null or o.createdOn < :to) "
+            + "order by o.createdOn desc, o.id desc")
+    List<OrderResponse> findUserOrderResponses(Long userId, OrderStatus status, LocalDateTime from, LocalDateTime to,
+                                               LocalDateTime beforeCreatedOn, Long beforeId, Limit limit);
+
+    @Query("select o.createdOn from CustomerOrder o where o.id = :id")
+    Optional<LocalDateTime> findCreatedOnById(Long id);
+
+    List<CustomerOrder> findByIntakeTrackingIdIn(Collection<String> intakeTrackingIds);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_RESPONSE + "order by o.id")
+    Stream<OrderResponse> streamOrderResponses();
 }
@@ -0,0 +1,14 @@
+package com.ecommerce.demo.repository;
+
+import com.ecommerce.demo.entity.DailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySales,LocalDate> {
+
+    List<DailySales> findBySalesDateBetweenOrderBySalesDateAsc(LocalDate from, LocalDate to);
+}
@@ -1,9 +1,18 @@
 package com.ecommerce.demo.repository;
 
+import com.ecommerce.demo.dtos.OrderLineView;
 import com.ecommerce.demo.entity.OrderProduct;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface OrderProductRepository extends JpaRepository<OrderProduct,Long> {
+
+    @Query("select new com.ecommerce.demo.dtos.OrderLineView(op.order.id, op.id, op.product.id, op.quantity) "
+            + "from OrderProduct op where op.order.id in :orderIds order by op.id")
+    List<OrderLineView> findLinesByOrderIds(Collection<Long> orderIds);
 }
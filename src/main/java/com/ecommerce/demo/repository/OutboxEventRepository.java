@@ -0,0 +1,25 @@
+package com.ecommerce.demo.repository;
+
+import com.ecommerce.demo.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent,Long> {
+
+    //FOR UPDATE SKIP LOCKED so relays on several nodes never publish the same event concurrently
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from OutboxEvent e where e.publishedOn is null order by e.id")
+    List<OutboxEvent> findUnpublishedForUpdate(Limit limit);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.publishedOn < :publishedBefore")
+    int deletePublishedBefore(LocalDateTime publishedBefore);
+}
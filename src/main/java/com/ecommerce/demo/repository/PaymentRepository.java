@@ -1,9 +1,58 @@
 package com.ecommerce.demo.repository;
 
+import com.ecommerce.demo.dtos.PaymentEvent;
+import com.ecommerce.demo.dtos.PaymentResponse;
 import com.ecommerce.demo.entity.Payment;
+import com.ecommerce.demo.entity.PaymentStatus;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment,Long> {
+
+    //order and user are read as foreign keys, neither entity is loaded
+    String PAYMENT_RESPONSE = "select new com.ecommerce.demo.dtos.PaymentResponse(p.id, p.order.id, p.user.id, "
+            + "p.receivedAmount, p.paymentStatus, p.errorMessage, p.createdOn) from Payment p ";
+
+    Optional<Payment> findByIdempotencyKey(String idempotencyKey);
+
+    @Query(PAYMENT_RESPONSE + "where p.id = :id")
+    Optional<PaymentResponse> findPaymentResponseById(Long id);
+
+    @Query(PAYMENT_RESPONSE + "where p.id > :afterId order by p.id")
+    List<PaymentResponse> findPaymentResponsesAfter(Long afterId, Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(PAYMENT_RESPONSE + "order by p.id")
+    Stream<PaymentResponse> streamPaymentResponses();
+
+    @Query("select new com.ecommerce.demo.dtos.PaymentEvent(p.id, p.order.id, p.user.id, p.receivedAmount, p.createdOn) "
+            + "from Payment p where p.id in :ids")
+    List<PaymentEvent> findPaymentEventsByIds(Collection<Long> ids);
+
+    //per-user history, newest first; unset filters are passed as null. Keyset on (createdOn, id) so the
+    //(user_id, created_on, id) index serves the date range and the order without a sort
+    @Query(PAYMENT_RESPONSE + "where p.user.id = :userId "
+            + "and (p.createdOn < :beforeCreatedOn or (p.createdOn = :beforeCreatedOn and p.id < :beforeId)) "
+            + "and (:status is null or p.paymentStatus = :status) "
+            + "and (:from is null or p.createdOn >= :from) and (:to is null or p.createdOn < :to) "
+            + "order by p.createdOn desc, p.id desc")
+    List<PaymentResponse> findUserPaymentResponses(Long userId, PaymentStatus status, LocalDateTime from,
+                                                   LocalDateTime to, LocalDateTime beforeCreatedOn, Long beforeId,
+                                                   Limit limit);
+
+    @Query("select p.createdOn from Payment p where p.id = :id")
+    Optional<LocalDateTime> findCreatedOnById(Long id);
 }
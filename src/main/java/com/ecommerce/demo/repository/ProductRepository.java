@@ -1,9 +1,29 @@
 package com.ecommerce.demo.repository;
 
+import com.ecommerce.demo.dtos.ProductResponse;
 import com.ecommerce.demo.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product,Long> {
+
+    String PRODUCT_RESPONSE = "select new com.ecommerce.demo.dtos.ProductResponse("
+            + "p.id, p.productName, p.price, p.stockQuantity) from Product p ";
+
+    @Query(PRODUCT_RESPONSE + "where p.id > :afterId order by p.id")
+    List<ProductResponse> findProductResponsesAfter(Long afterId, Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(PRODUCT_RESPONSE + "order by p.id")
+    Stream<ProductResponse> streamProductResponses();
 }
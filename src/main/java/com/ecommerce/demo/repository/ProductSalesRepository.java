@@ -0,0 +1,9 @@
+package com.ecommerce.demo.repository;
+
+import com.ecommerce.demo.entity.ProductSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductSalesRepository extends JpaRepository<ProductSales,Long> {
+}
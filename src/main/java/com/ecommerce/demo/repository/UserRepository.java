@@ -1,9 +1,32 @@
 package com.ecommerce.demo.repository;
 
+import com.ecommerce.demo.dtos.UserResponse;
 import com.ecommerce.demo.entity.User;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface UserRepository extends JpaRepository<User,Long> {
+
+    String USER_RESPONSE = "select new com.ecommerce.demo.dtos.UserResponse(u.id, u.userName, u.email, u.phone) from User u ";
+
+    @Query(USER_RESPONSE + "where u.id = :id")
+    Optional<UserResponse> findUserResponseById(Long id);
+
+    @Query(USER_RESPONSE + "where u.id > :afterId order by u.id")
+    List<UserResponse> findUserResponsesAfter(Long afterId, Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(USER_RESPONSE + "order by u.id")
+    Stream<UserResponse> streamUserResponses();
 }
@@ -0,0 +1,9 @@
+package com.ecommerce.demo.repository;
+
+import com.ecommerce.demo.entity.UserSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserSalesRepository extends JpaRepository<UserSales,Long> {
+}
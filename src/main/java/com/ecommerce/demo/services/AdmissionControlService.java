@@ -0,0 +1,203 @@
+package com.ecommerce.demo.services;
+
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.config.MetricsConfig;
+import com.ecommerce.demo.dtos.TokenBucket;
+import com.ecommerce.demo.exception.TooManyRequestsException;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket admission control for the write endpoints, held in the Hazelcast rate-limit map so the limits
+ * apply across every member. Each user has a bucket, and one global bucket caps the whole cluster so a burst
+ * from many users cannot exhaust the database pool either. A request takes one token per order from its
+ * user's bucket, then the same number from the global bucket; without them it is rejected with
+ * {@link TooManyRequestsException} before it touches the database.
+ * <p>
+ * Buckets are updated by an entry processor on the partition thread owning the key, so concurrent requests
+ * of a user never race. If the map does not answer within admission.timeout-ms the request is let through:
+ * a slow or partitioned cluster must not take the write endpoints down with it.
+ */
+@Service
+@Slf4j
+public class AdmissionControlService {
+
+    static final String GLOBAL_KEY = "global";
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${admission.user.capacity:20}")
+    private int userCapacity;
+
+    @Value("${admission.user.refill-per-second:5}")
+    private double userRefillPerSecond;
+
+    @Value("${admission.global.capacity:400}")
+    private int globalCapacity;
+
+    @Value("${admission.global.refill-per-second:200}")
+    private double globalRefillPerSecond;
+
+    @Value("${admission.timeout-ms:50}")
+    private long timeoutMs;
+
+    //One request of one user
+    public void admit(String endpoint, Long userId) {
+        admit(endpoint, Collections.singletonMap(userId, 1));
+    }
+
+    //Takes the given number of tokens per user, and their sum from the global bucket, or rejects the
+    //request as a whole: tokens already taken are given back when a later bucket is short.
+    //Requests without a user id fail validation later, they are only charged to the global bucket
+    public void admit(String endpoint, Map<Long, Integer> permitsByUser) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Map<String, Integer> userPermits = new HashMap<>();
+            permitsByUser.forEach((userId, permits) -> {
+                if (userId != null) {
+                    userPermits.put(userKey(userId), permits);
+                }
+            });
+            int totalPermits = permitsByUser.values().stream().mapToInt(Integer::intValue).sum();
+
+            long userWait = acquire(userPermits, userCapacity, userRefillPerSecond);
+            if (userWait > 0) {
+                reject(endpoint, "user-limited", userWait, "Too many requests for this user");
+            }
+            long globalWait = acquire(Map.of(GLOBAL_KEY, Math.max(1, totalPermits)), globalCapacity, globalRefillPerSecond);
+            if (globalWait > 0) {
+                refund(userPermits, userCapacity);
+                reject(endpoint, "global-limited", globalWait, "Too many requests, try again later");
+            }
+            meterRegistry.counter(MetricsConfig.ADMISSION_REQUESTS_COUNTER, "endpoint", endpoint, "result", "admitted").increment();
+        } catch (TooManyRequestsException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Admission check for {} failed, letting the request through: {}", endpoint, e.toString());
+            meterRegistry.counter(MetricsConfig.ADMISSION_REQUESTS_COUNTER, "endpoint", endpoint, "result", "failed-open").increment();
+        }
+    }
+
+    private void reject(String endpoint, String result, long retryAfterMillis, String message) {
+        meterRegistry.counter(MetricsConfig.ADMISSION_REQUESTS_COUNTER, "endpoint", endpoint, "result", result).increment();
+        throw new TooManyRequestsException(message, retryAfterMillis);
+    }
+
+    //Takes the tokens from every bucket that has them; returns 0 if all did, otherwise the longest wait
+    //in millis after giving back the tokens taken
+    private long acquire(Map<String, Integer> permits, int capacity, double refillPerSecond) throws Exception {
+        if (permits.isEmpty()) {
+            return 0;
+        }
+        Map<String, Long> waits = execute(permits.keySet(), new AcquireProcessor(permits, capacity, refillPerSecond));
+        long longestWait = waits.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        if (longestWait > 0) {
+            Map<String, Integer> taken = new HashMap<>(permits);
+            taken.keySet().removeIf(key -> waits.getOrDefault(key, 0L) > 0);
+            refund(taken, capacity);
+        }
+        return longestWait;
+    }
+
+    //Fire and forget, a lost refund only makes the next requests wait a little longer
+    private void refund(Map<String, Integer> permits, int capacity) {
+        if (!permits.isEmpty()) {
+            rateLimits().submitToKeys(permits.keySet(), new RefundProcessor(permits, capacity));
+        }
+    }
+
+    //A single key, every request's global bucket and most user buckets, goes straight to its partition
+    private Map<String, Long> execute(Set<String> keys, EntryProcessor<String, TokenBucket, Long> processor) throws Exception {
+        try {
+            if (keys.size() == 1) {
+                String key = keys.iterator().next();
+                Long wait = rateLimits().submitToKey(key, processor).toCompletableFuture().get(timeoutMs, TimeUnit.MILLISECONDS);
+                return Map.of(key, wait);
+            }
+            return rateLimits().submitToKeys(keys, processor).toCompletableFuture().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private IMap<String, TokenBucket> rateLimits() {
+        return hazelcastInstance.getMap(CacheConfig.RATE_LIMIT_MAP);
+    }
+
+    private static String userKey(Long userId) {
+        return "user:" + userId;
+    }
+
+    //A missing bucket is full. Requests for more tokens than the capacity are charged the capacity, so a
+    //large batch waits for a full bucket instead of never being admitted
+
+    static class AcquireProcessor implements EntryProcessor<String, TokenBucket, Long> {
+
+        private final Map<String, Integer> permits;
+
+        private final int capacity;
+
+        private final double refillPerSecond;
+
+        AcquireProcessor(Map<String, Integer> permits, int capacity, double refillPerSecond) {
+            this.permits = new HashMap<>(permits);
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+
+        @Override
+        public Long process(Map.Entry<String, TokenBucket> entry) {
+            long now = System.currentTimeMillis();
+            TokenBucket bucket = entry.getValue();
+            double tokens = bucket == null ? capacity : bucket.tokensAt(now, capacity, refillPerSecond);
+            int wanted = Math.min(permits.get(entry.getKey()), capacity);
+            if (tokens < wanted) {
+                //nothing is written on a rejection, the bucket keeps refilling from its last update
+                return Math.max(1, (long) Math.ceil((wanted - tokens) * 1000 / refillPerSecond));
+            }
+            entry.setValue(new TokenBucket(tokens - wanted, now));
+            return 0L;
+        }
+    }
+
+    static class RefundProcessor implements EntryProcessor<String, TokenBucket, Void> {
+
+        private final Map<String, Integer> permits;
+
+        private final int capacity;
+
+        RefundProcessor(Map<String, Integer> permits, int capacity) {
+            this.permits = new HashMap<>(permits);
+            this.capacity = capacity;
+        }
+
+        @Override
+        public Void process(Map.Entry<String, TokenBucket> entry) {
+            TokenBucket bucket = entry.getValue();
+            if (bucket != null) {
+                bucket.setTokens(Math.min(capacity, bucket.getTokens() + Math.min(permits.get(entry.getKey()), capacity)));
+                entry.setValue(bucket);
+            }
+            return null;
+        }
+    }
+}
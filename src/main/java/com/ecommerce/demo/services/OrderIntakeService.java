@@ -0,0 +1,197 @@
+package com.ecommerce.demo.services;
+
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.config.MetricsConfig;
+import com.ecommerce.demo.config.RabbitMQConfig;
+import com.ecommerce.demo.dtos.BatchOrderResult;
+import com.ecommerce.demo.dtos.OrderIntakeMessage;
+import com.ecommerce.demo.dtos.OrderIntakeStatus;
+import com.ecommerce.demo.dtos.OrderRequest;
+import com.ecommerce.demo.dtos.ProductQuantity;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class OrderIntakeService {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${orders.intake.confirm-timeout-ms:5000}")
+    private long confirmTimeout;
+
+    //Checks the request shape only, publishes it and waits for the broker confirm; users and products are
+    //resolved by the worker, so the request thread never touches the database
+    public OrderIntakeStatus submitOrder(OrderRequest orderRequest) {
+        String error = validateRequest(orderRequest);
+        if(error != null){
+            throw new RuntimeException(error);
+        }
+
+        OrderIntakeStatus status = OrderIntakeStatus.builder()
+                .trackingId(UUID.randomUUID().toString())
+                .state(OrderIntakeStatus.State.QUEUED)
+                .acceptedOn(LocalDateTime.now())
+                .build();
+        OrderIntakeMessage message = OrderIntakeMessage.builder()
+                .trackingId(status.getTrackingId())
+                .orderRequest(orderRequest)
+                .acceptedOn(status.getAcceptedOn())
+                .build();
+
+        //status first, so a fast worker never completes a tracking id that is not there yet
+        IMap<String, OrderIntakeStatus> statuses = statuses();
+        statuses.set(status.getTrackingId(), status);
+        try {
+            rabbitTemplate.invoke(operations -> {
+                operations.convertAndSend(RabbitMQConfig.EXCHANGE, RabbitMQConfig.ORDER_INTAKE_ROUTING_KEY, message);
+                operations.waitForConfirmsOrDie(confirmTimeout);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            statuses.delete(status.getTrackingId());
+            throw new RuntimeException("Order could not be queued: " + e.getMessage(), e);
+        }
+
+        meterRegistry.counter(MetricsConfig.ORDERS_INTAKE_COUNTER, "result", "accepted").increment();
+        return status;
+    }
+
+    public OrderIntakeStatus getStatus(String trackingId) {
+        OrderIntakeStatus status = statuses().get(trackingId);
+        if(status == null){
+            throw new RuntimeException("Order request not found with tracking id " + trackingId);
+        }
+        return status;
+    }
+
+    //One placeIntakeOrders transaction per delivery; the container acks the batch only after this method returns,
+    //so a failed transaction redelivers the whole batch. Retries and the reject without requeue come from the
+    //listener factory (RabbitMQConfig.batchListenerFactory)
+    @RabbitListener(queues = RabbitMQConfig.ORDER_INTAKE_QUEUE, containerFactory = RabbitMQConfig.ORDER_INTAKE_LISTENER_FACTORY)
+    public void consumeOrders(List<Message> messages) {
+        List<OrderIntakeMessage> intakeMessages = new ArrayList<>(messages.size());
+        List<Message> poisonMessages = new ArrayList<>();
+        for (Message message : messages) {
+            OrderIntakeMessage intakeMessage = toIntakeMessage(message);
+            if (intakeMessage == null) {
+                poisonMessages.add(message);
+            } else {
+                intakeMessages.add(intakeMessage);
+            }
+        }
+
+        IMap<String, OrderIntakeStatus> statuses = statuses();
+        //the status map skips what it knows is done; an order placed before its status was written is found
+        //by its tracking id in placeIntakeOrders
+        Map<String, OrderIntakeStatus> current = statuses.getAll(intakeMessages.stream()
+                .map(OrderIntakeMessage::getTrackingId)
+                .collect(Collectors.toSet()));
+        Set<String> seen = new HashSet<>();
+        List<OrderIntakeMessage> pending = intakeMessages.stream()
+                .filter(intakeMessage -> seen.add(intakeMessage.getTrackingId()))
+                .filter(intakeMessage -> {
+                    OrderIntakeStatus status = current.get(intakeMessage.getTrackingId());
+                    return status == null || status.getState() == OrderIntakeStatus.State.QUEUED;
+                })
+                .toList();
+
+        if (!pending.isEmpty()) {
+            List<BatchOrderResult> results = orderService.placeIntakeOrders(
+                    pending.stream().map(OrderIntakeMessage::getOrderRequest).toList(),
+                    pending.stream().map(OrderIntakeMessage::getTrackingId).toList());
+
+            LocalDateTime now = LocalDateTime.now();
+            Map<String, OrderIntakeStatus> completed = new HashMap<>();
+            for (BatchOrderResult result : results) {
+                OrderIntakeMessage intakeMessage = pending.get(result.getIndex());
+                completed.put(intakeMessage.getTrackingId(), OrderIntakeStatus.builder()
+                        .trackingId(intakeMessage.getTrackingId())
+                        .state(result.isSuccess() ? OrderIntakeStatus.State.PLACED : OrderIntakeStatus.State.FAILED)
+                        .orderId(result.getOrderId())
+                        .orderAmount(result.getOrderAmount())
+                        .error(result.getError())
+                        .acceptedOn(intakeMessage.getAcceptedOn())
+                        .completedOn(now)
+                        .build());
+                meterRegistry.counter(MetricsConfig.ORDERS_INTAKE_COUNTER, "result",
+                        result.isSuccess() ? "placed" : "failed").increment();
+                if (intakeMessage.getAcceptedOn() != null) {
+                    meterRegistry.timer(MetricsConfig.ORDERS_INTAKE_LAG_TIMER)
+                            .record(Duration.between(intakeMessage.getAcceptedOn(), now));
+                }
+            }
+            statuses.putAll(completed);
+            log.info("{} queued orders processed", pending.size());
+        }
+
+        poisonMessages.forEach(message ->
+                rabbitTemplate.send(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, message));
+        if (!poisonMessages.isEmpty()) {
+            log.error("{} unprocessable order intake messages routed to {}", poisonMessages.size(), RabbitMQConfig.DEAD_LETTER_QUEUE);
+        }
+    }
+
+    private String validateRequest(OrderRequest orderRequest) {
+        if(orderRequest.getUserId() == null){
+            return "User id is required";
+        }
+        if(orderRequest.getProducts() == null || orderRequest.getProducts().isEmpty()){
+            return "Order has no products";
+        }
+        for (ProductQuantity productQuantity : orderRequest.getProducts()) {
+            if(productQuantity.getProductId() == null){
+                return "Product id is required";
+            }
+            if(productQuantity.getQuantity() <= 0){
+                return "Quantity must be positive for product " + productQuantity.getProductId();
+            }
+        }
+        return null;
+    }
+
+    //Returns null for messages that can never be processed so they are dead-lettered instead of redelivered
+    private OrderIntakeMessage toIntakeMessage(Message message) {
+        try {
+            if (messageConverter.fromMessage(message) instanceof OrderIntakeMessage intakeMessage
+                    && intakeMessage.getTrackingId() != null && intakeMessage.getOrderRequest() != null) {
+                return intakeMessage;
+            }
+            log.error("Invalid order intake message: {}", message);
+        } catch (Exception e) {
+            log.error("Order intake message could not be converted: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private IMap<String, OrderIntakeStatus> statuses() {
+        return hazelcastInstance.getMap(CacheConfig.ORDER_INTAKE_MAP);
+    }
+}
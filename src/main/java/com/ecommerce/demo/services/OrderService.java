@@ -1,22 +1,40 @@
 package com.ecommerce.demo.services;
 
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.config.MetricsConfig;
+import com.ecommerce.demo.dtos.BatchOrderResult;
+import com.ecommerce.demo.dtos.CursorPage;
+import com.ecommerce.demo.dtos.OrderLineView;
 import com.ecommerce.demo.dtos.OrderProductResponse;
 import com.ecommerce.demo.dtos.OrderRequest;
 import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.dtos.ProductQuantity;
 import com.ecommerce.demo.entity.*;
 import com.ecommerce.demo.repository.CustomerOrderRepository;
+import com.ecommerce.demo.repository.OrderProductRepository;
 import com.ecommerce.demo.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -31,47 +49,80 @@ public class OrderService {
     @Autowired
     private UserService userService;
 
-    @Cacheable(value = "orders-cache")
-    public List<OrderResponse> getAllOrders() {
+    @Autowired
+    private OrderProductRepository orderProductRepository;
+
+    @Autowired
+    private StockService stockService;
+
+    private static final int STREAM_CHUNK_SIZE = 500;
+
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    //Two statements per page: order headers, then the lines of every order on the page
+    @Timed(MetricsConfig.ORDERS_LIST_TIMER)
+    @Transactional(readOnly = true)
+    @Cacheable(value = CacheConfig.ORDER_LIST_CACHE, key = "#afterId + ':' + #limit")
+    public CursorPage<OrderResponse> getAllOrders(Long afterId, int limit) {
         log.info("fetching from db!");
-        List<CustomerOrder> orders = customerOrderRepository.findAll();
-        List<OrderResponse> orderResponses = orders.stream().map(this::mapToOrderResponse).toList();
-        return orderResponses;
+        List<OrderResponse> orderResponses = customerOrderRepository.findOrderResponsesAfter(afterId, Limit.of(limit + 1));
+        return CursorPage.of(attachOrderProducts(orderResponses), limit, OrderResponse::getId);
+    }
+
+    //One user's orders newest first, filtered by status and a [from, to) creation range; pass the returned
+    //nextCreatedOn and nextAfterId as beforeCreatedOn and beforeId for the next page
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getUserOrders(Long userId, OrderStatus status, LocalDateTime from, LocalDateTime to,
+                                                   LocalDateTime beforeCreatedOn, Long beforeId, int limit) {
+        if(beforeId != null && beforeCreatedOn == null){
+            //a cursor with the id only, the creation time is read from the row
+            beforeCreatedOn = customerOrderRepository.findCreatedOnById(beforeId)
+                    .orElseThrow(() -> new RuntimeException("Order not found with id " + beforeId));
+        }
+        List<OrderResponse> orderResponses = customerOrderRepository.findUserOrderResponses(userId, status, from, to,
+                beforeCreatedOn == null ? CursorPage.LATEST : beforeCreatedOn,
+                beforeId == null ? Long.MAX_VALUE : beforeId, Limit.of(limit + 1));
+        return CursorPage.of(attachOrderProducts(orderResponses), limit, OrderResponse::getId, OrderResponse::getCreatedOn);
+    }
+
+    //Hands every order to the consumer as it is read, loading lines for a chunk of orders at a time
+    @Transactional(readOnly = true)
+    public void streamAllOrders(Consumer<OrderResponse> consumer) {
+        List<OrderResponse> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        try (Stream<OrderResponse> orders = customerOrderRepository.streamOrderResponses()) {
+            orders.forEach(order -> {
+                chunk.add(order);
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    attachOrderProducts(chunk).forEach(consumer);
+                    chunk.clear();
+                }
+            });
+        }
+        attachOrderProducts(chunk).forEach(consumer);
     }
 
-    @Cacheable(value = "orders-cache", key = "#id")
+    @Transactional(readOnly = true)
+    @Cacheable(value = CacheConfig.ORDERS_CACHE, key = "#id")
     public OrderResponse getOrderResponseById(Long id) {
         log.info("fetching from db!");
-        CustomerOrder order = customerOrderRepository.findById(id)
+        OrderResponse order = customerOrderRepository.findOrderResponseById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found with id " + id));
-        return mapToOrderResponse(order);
+        return attachOrderProducts(List.of(order)).get(0);
     }
 
+    @Timed(MetricsConfig.ORDERS_PLACE_TIMER)
     @Transactional
+    @Caching(
+            put = @CachePut(value = CacheConfig.ORDERS_CACHE, key = "#result.id"),
+            evict = @CacheEvict(value = CacheConfig.ORDER_LIST_CACHE, allEntries = true)
+    )
     public OrderResponse placeOrder(OrderRequest orderRequest) {
         User user = userService.getUserById(orderRequest.getUserId());
 
-        CustomerOrder order = new CustomerOrder();
-        order.setUser(user);
+        CustomerOrder order = buildOrder(user, orderRequest, resolveProducts(orderRequest));
 
-        // Create a list of OrderProduct entities
-        List<OrderProduct> orderProducts = orderRequest.getProducts().stream().map(productQuantity -> {
-            Product product = productService.getProductById(productQuantity.getProductId());
-            OrderProduct orderProduct = new OrderProduct();
-            orderProduct.setOrder(order);
-            orderProduct.setProduct(product);
-            orderProduct.setQuantity(productQuantity.getQuantity());
-            return orderProduct;
-        }).toList();
-        order.setOrderProducts(orderProducts);
-
-        //Calculate total order amount
-        BigDecimal orderAmount = order.getOrderProducts().stream()
-                .map( orderProduct -> orderProduct.getProduct().getPrice()
-                        .multiply(BigDecimal.valueOf(orderProduct.getQuantity())))
-                .reduce(BigDecimal.ZERO,BigDecimal::add);
-
-        order.setOrderAmount(orderAmount);
+        //held until the order is paid or deleted, given back if this transaction rolls back
+        stockService.reserve(StockService.quantitiesOf(order.getOrderProducts()));
 
         log.info("Order placed for userId: {}",user.getId());
 
@@ -80,9 +131,96 @@ public class OrderService {
         return mapToOrderResponse(placedOrder);
     }
 
-    @CachePut(value = "orders-cache", key = "#id")
+    //All users and products of the batch are resolved with one lookup each; invalid orders are reported
+    //and skipped, the valid ones are inserted in one transaction with JDBC batching
+    @Timed(MetricsConfig.ORDERS_PLACE_BATCH_TIMER)
+    @Transactional
+    @CacheEvict(value = CacheConfig.ORDER_LIST_CACHE, allEntries = true)
+    public List<BatchOrderResult> placeOrders(List<OrderRequest> orderRequests) {
+        return placeOrders(orderRequests, null);
+    }
+
+    //Orders queued through the intake listener: each order stores its tracking id in the same transaction,
+    //so a redelivered message gets the order placed the first time instead of a second one
+    @Timed(MetricsConfig.ORDERS_PLACE_BATCH_TIMER)
+    @Transactional
+    @CacheEvict(value = CacheConfig.ORDER_LIST_CACHE, allEntries = true)
+    public List<BatchOrderResult> placeIntakeOrders(List<OrderRequest> orderRequests, List<String> trackingIds) {
+        return placeOrders(orderRequests, trackingIds);
+    }
+
+    private List<BatchOrderResult> placeOrders(List<OrderRequest> orderRequests, List<String> trackingIds) {
+        if(orderRequests.size() > MAX_BATCH_SIZE){
+            throw new RuntimeException("A batch can contain at most " + MAX_BATCH_SIZE + " orders");
+        }
+
+        Map<Long, User> users = userService.getUsersByIds(orderRequests.stream()
+                .map(OrderRequest::getUserId)
+                .filter(Objects::nonNull)
+                .toList());
+        Map<Long, Product> products = productService.findProductsByIds(orderRequests.stream()
+                .filter(orderRequest -> orderRequest.getProducts() != null)
+                .flatMap(orderRequest -> orderRequest.getProducts().stream())
+                .map(ProductQuantity::getProductId)
+                .filter(Objects::nonNull)
+                .toList());
+
+        //unique per order, a concurrent consumer inserting the same tracking id fails this transaction instead
+        Map<String, CustomerOrder> alreadyPlaced = trackingIds == null ? Map.of()
+                : customerOrderRepository.findByIntakeTrackingIdIn(trackingIds).stream()
+                        .collect(Collectors.toMap(CustomerOrder::getIntakeTrackingId, order -> order));
+
+        List<BatchOrderResult> results = new ArrayList<>(orderRequests.size());
+        List<CustomerOrder> orders = new ArrayList<>();
+        List<BatchOrderResult> placedResults = new ArrayList<>();
+        for (int i = 0; i < orderRequests.size(); i++) {
+            OrderRequest orderRequest = orderRequests.get(i);
+            String trackingId = trackingIds == null ? null : trackingIds.get(i);
+            CustomerOrder placedOrder = trackingId == null ? null : alreadyPlaced.get(trackingId);
+            if(placedOrder != null){
+                results.add(BatchOrderResult.builder()
+                        .index(i)
+                        .success(true)
+                        .orderId(placedOrder.getId())
+                        .orderAmount(placedOrder.getOrderAmount().toBigDecimal())
+                        .build());
+                continue;
+            }
+            String error = validateOrder(orderRequest, users, products);
+            CustomerOrder order = null;
+            if(error == null){
+                order = buildOrder(users.get(orderRequest.getUserId()), orderRequest, products);
+                order.setIntakeTrackingId(trackingId);
+                error = reserveStock(order);
+            }
+            BatchOrderResult result = BatchOrderResult.builder().index(i).success(error == null).error(error).build();
+            if(error == null){
+                orders.add(order);
+                placedResults.add(result);
+            }
+            results.add(result);
+        }
+
+        //ids come from the pooled sequence, rows are written in batches at flush
+        customerOrderRepository.saveAll(orders);
+        for (int i = 0; i < orders.size(); i++) {
+            placedResults.get(i).setOrderId(orders.get(i).getId());
+            placedResults.get(i).setOrderAmount(orders.get(i).getOrderAmount().toBigDecimal());
+        }
+
+        log.info("{} of {} batch orders placed", orders.size(), orderRequests.size());
+        return results;
+    }
+
+    @Timed(MetricsConfig.ORDERS_UPDATE_TIMER)
+    @Caching(
+            put = @CachePut(value = CacheConfig.ORDERS_CACHE, key = "#id"),
+            evict = @CacheEvict(value = CacheConfig.ORDER_LIST_CACHE, allEntries = true)
+    )
+    @Transactional
     public OrderResponse updateOrder(Long id, OrderRequest orderRequest) {
-        CustomerOrder existingOrder = getOrderById(id);
+        CustomerOrder existingOrder = customerOrderRepository.findWithOrderProductsById(id)
+                .orElseThrow(() -> new RuntimeException("Order not found with id " + id));
 
         //Cannot update order after payment received successfully
         if(existingOrder.getOrderStatus().equals(OrderStatus.Success)){
@@ -92,49 +230,164 @@ public class OrderService {
         User user = userService.getUserById(orderRequest.getUserId());
         existingOrder.setUser(user);
 
-        // Create a list of updated OrderProduct entities
-        List<OrderProduct> updatedOrderProducts = orderRequest.getProducts().stream().map(productQuantity -> {
-            Product product = productService.getProductById(productQuantity.getProductId());
+        Map<Long, Product> products = resolveProducts(orderRequest);
+        Map<Long, Integer> previousQuantities = StockService.quantitiesOf(existingOrder.getOrderProducts());
+
+        //requested quantity per product, a product listed twice gets one line with the sum
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        orderRequest.getProducts().forEach(productQuantity ->
+                quantities.merge(productQuantity.getProductId(), productQuantity.getQuantity(), Integer::sum));
+
+        //Diff against the existing lines: keep and update matching ones, drop the rest (deleted as orphans)
+        Map<Long, Integer> unmatched = new LinkedHashMap<>(quantities);
+        long orderAmount = 0;
+        Iterator<OrderProduct> lines = existingOrder.getOrderProducts().iterator();
+        while (lines.hasNext()) {
+            OrderProduct orderProduct = lines.next();
+            Integer quantity = unmatched.remove(orderProduct.getProduct().getId());
+            if (quantity == null) {
+                lines.remove();
+                continue;
+            }
+            Product product = products.get(orderProduct.getProduct().getId());
+            orderProduct.setQuantity(quantity);
+            orderProduct.setUnitPrice(product.getPrice());
+            orderAmount = Math.addExact(orderAmount, lineAmount(product, quantity));
+        }
+
+        //Only products not in the order yet get new lines, inserted in one JDBC batch at flush
+        List<OrderProduct> newOrderProducts = new ArrayList<>(unmatched.size());
+        for (Map.Entry<Long, Integer> entry : unmatched.entrySet()) {
+            Product product = products.get(entry.getKey());
+            newOrderProducts.add(OrderProduct.builder()
+                    .order(existingOrder)
+                    .product(product)
+                    .quantity(entry.getValue())
+                    .unitPrice(product.getPrice())
+                    .build());
+            orderAmount = Math.addExact(orderAmount, lineAmount(product, entry.getValue()));
+        }
+        if (!newOrderProducts.isEmpty()) {
+            orderProductRepository.saveAll(newOrderProducts);
+            existingOrder.getOrderProducts().addAll(newOrderProducts);
+        }
+
+        //Update total order amount, summed in cents at current prices while diffing
+        existingOrder.setOrderAmount(Money.ofMinor(orderAmount));
+
+        //a pending order holds stock for its lines, failed orders gave theirs back already
+        if(existingOrder.getOrderStatus() == OrderStatus.Pending){
+            stockService.adjustReservation(previousQuantities, quantities);
+        }
+
+        log.info("Order: {} updated for userId:{}",id,user.getId());
+
+        //existingOrder is managed, its changes are flushed at commit without a merge
+        return mapToOrderResponse(existingOrder);
+    }
+
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.ORDERS_CACHE, key = "#id"),
+            @CacheEvict(value = CacheConfig.ORDER_LIST_CACHE, allEntries = true)
+    })
+    @Transactional
+    public void deleteOrder(Long id) {
+        CustomerOrder customerOrder = customerOrderRepository.findWithOrderProductsById(id)
+                .orElseThrow(() -> new RuntimeException("Order not found with id " + id));
+        if(customerOrder.getOrderStatus() == OrderStatus.Pending){
+            stockService.release(StockService.quantitiesOf(customerOrder.getOrderProducts()));
+        }
+        customerOrderRepository.delete(customerOrder);
+    }
 
-            // Find if the product already exists in the order
-            OrderProduct orderProduct = existingOrder.getOrderProducts().stream()
-                    .filter(op -> op.getProduct().getId().equals(product.getId()))
-                    .findFirst()
-                    .orElse(new OrderProduct()); // Create a new one if not found
+    //Returns the reason the order's stock cannot be reserved, or null when it is reserved
+    private String reserveStock(CustomerOrder order){
+        try {
+            stockService.reserve(StockService.quantitiesOf(order.getOrderProducts()));
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private CustomerOrder buildOrder(User user, OrderRequest orderRequest, Map<Long, Product> products){
+        CustomerOrder order = new CustomerOrder();
+        order.setUser(user);
 
-            // Update or set details
-            orderProduct.setOrder(existingOrder);
+        // Create a list of OrderProduct entities
+        List<OrderProduct> orderProducts = orderRequest.getProducts().stream().map(productQuantity -> {
+            Product product = products.get(productQuantity.getProductId());
+            OrderProduct orderProduct = new OrderProduct();
+            orderProduct.setOrder(order);
             orderProduct.setProduct(product);
             orderProduct.setQuantity(productQuantity.getQuantity());
+            orderProduct.setUnitPrice(product.getPrice());
             return orderProduct;
         }).toList();
+        order.setOrderProducts(orderProducts);
 
-        // Update the order's product list
-        existingOrder.getOrderProducts().clear(); // Clear products not in updated request
-        existingOrder.getOrderProducts().addAll(updatedOrderProducts); // Add updated products
-
-        //Update total order amount
-        BigDecimal orderAmount = existingOrder.getOrderProducts().stream()
-                .map( orderProduct -> orderProduct.getProduct().getPrice()
-                        .multiply(BigDecimal.valueOf(orderProduct.getQuantity())))
-                .reduce(BigDecimal.ZERO,BigDecimal::add);
+        //Calculate total order amount
+        order.setOrderAmount(calculateOrderAmount(order.getOrderProducts()));
+        return order;
+    }
 
-        existingOrder.setOrderAmount(orderAmount);
+    //Returns the reason a batch order cannot be placed, or null when it is valid
+    private String validateOrder(OrderRequest orderRequest, Map<Long, User> users, Map<Long, Product> products){
+        if(orderRequest.getUserId() == null || !users.containsKey(orderRequest.getUserId())){
+            return "User not found with id " + orderRequest.getUserId();
+        }
+        if(orderRequest.getProducts() == null || orderRequest.getProducts().isEmpty()){
+            return "Order has no products";
+        }
+        for (ProductQuantity productQuantity : orderRequest.getProducts()) {
+            if(productQuantity.getQuantity() <= 0){
+                return "Quantity must be positive for product " + productQuantity.getProductId();
+            }
+        }
+        List<Long> missingIds = orderRequest.getProducts().stream()
+                .map(ProductQuantity::getProductId)
+                .filter(productId -> productId == null || !products.containsKey(productId))
+                .distinct()
+                .sorted(Comparator.nullsFirst(Comparator.naturalOrder()))
+                .toList();
+        return missingIds.isEmpty() ? null : "Products not found with ids " + missingIds;
+    }
 
-        log.info("Order: {} updated for userId:{}",id,user.getId());
+    //Fetch every product of the request in one query, failing once with all missing ids
+    private Map<Long, Product> resolveProducts(OrderRequest orderRequest){
+        List<Long> productIds = orderRequest.getProducts().stream()
+                .map(ProductQuantity::getProductId)
+                .toList();
+        return productService.getProductsByIds(productIds);
+    }
 
-        CustomerOrder updatedOrder = customerOrderRepository.save(existingOrder);
+    private List<OrderResponse> attachOrderProducts(List<OrderResponse> orders){
+        if(orders.isEmpty()){
+            return orders;
+        }
+        List<Long> orderIds = orders.stream().map(OrderResponse::getId).toList();
+        Map<Long, List<OrderProductResponse>> linesByOrder = orderProductRepository.findLinesByOrderIds(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderLineView::orderId,
+                        Collectors.mapping(OrderLineView::toResponse, Collectors.toList())));
+        orders.forEach(order -> order.setOrderProducts(linesByOrder.getOrDefault(order.getId(), new ArrayList<>())));
+        return orders;
+    }
 
-        return mapToOrderResponse(updatedOrder);
+    //public and static so the JMH benchmarks can measure pricing and mapping in isolation
+    public static Money calculateOrderAmount(List<OrderProduct> orderProducts){
+        long orderAmount = 0;
+        for (OrderProduct orderProduct : orderProducts) {
+            orderAmount = Math.addExact(orderAmount, lineAmount(orderProduct.getProduct(), orderProduct.getQuantity()));
+        }
+        return Money.ofMinor(orderAmount);
     }
 
-    @CacheEvict(value = "orders-cache", key = "#id")
-    public void deleteOrder(Long id) {
-        CustomerOrder customerOrder = getOrderById(id);
-        customerOrderRepository.delete(customerOrder);
+    //in cents, so pricing an order allocates nothing per line; overflow throws instead of wrapping
+    private static long lineAmount(Product product, int quantity){
+        return Math.multiplyExact(product.getPrice().getMinorUnits(), quantity);
     }
 
-    private OrderResponse mapToOrderResponse(CustomerOrder order){
+    public static OrderResponse mapToOrderResponse(CustomerOrder order){
         List<OrderProductResponse> productResponses = order.getOrderProducts().stream()
                 .map(orderProduct ->
                     OrderProductResponse.builder()
@@ -149,7 +402,7 @@ public class OrderService {
                 .id(order.getId())
                 .userId(order.getUser().getId())
                 .orderProducts(productResponses)
-                .orderAmount(order.getOrderAmount())
+                .orderAmount(order.getOrderAmount().toBigDecimal())
                 .orderStatus(order.getOrderStatus())
                 .createdOn(order.getCreatedOn())
                 .updatedOn(order.getUpdatedOn())
@@ -161,7 +414,12 @@ public class OrderService {
                 .orElseThrow(() -> new RuntimeException("Order not found with id " + id));
     }
 
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.ORDERS_CACHE, key = "#order.id"),
+            @CacheEvict(value = CacheConfig.ORDER_LIST_CACHE, allEntries = true)
+    })
     public void updateOrderStatus(CustomerOrder order,OrderStatus orderStatus){
+        stockService.onOrderStatusChange(StockService.quantitiesOf(order.getOrderProducts()), order.getOrderStatus(), orderStatus);
         order.setOrderStatus(orderStatus);
         customerOrderRepository.save(order);
     }
@@ -0,0 +1,114 @@
+package com.ecommerce.demo.services;
+
+import com.ecommerce.demo.config.MetricsConfig;
+import com.ecommerce.demo.config.RabbitMQConfig;
+import com.ecommerce.demo.dtos.PaymentEvent;
+import com.ecommerce.demo.entity.OutboxEvent;
+import com.ecommerce.demo.repository.OutboxEventRepository;
+import com.ecommerce.demo.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class OutboxRelayService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.relay.confirm-timeout-ms:5000}")
+    private long confirmTimeout;
+
+    @Value("${outbox.relay.retention-hours:24}")
+    private long retentionHours;
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void relay() {
+        try {
+            int published;
+            do {
+                published = publishBatch();
+            } while (published == batchSize);
+        } catch (Exception e) {
+            //events stay unpublished and are retried on the next run
+            log.error("Outbox relay failed: {}", e.getMessage());
+        }
+    }
+
+    //Publishes one batch and waits for broker confirms before marking the events published in the same transaction
+    public int publishBatch() {
+        Integer published = transactionTemplate.execute(status -> {
+            List<OutboxEvent> events = outboxEventRepository.findUnpublishedForUpdate(Limit.of(batchSize));
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            Map<Long, PaymentEvent> paymentEvents = paymentRepository.findPaymentEventsByIds(
+                            events.stream().map(OutboxEvent::getAggregateId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(PaymentEvent::getPaymentId, Function.identity()));
+
+            LocalDateTime now = LocalDateTime.now();
+            //publish latency covers the sends and the wait for broker confirms of the whole batch
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                rabbitTemplate.invoke(operations -> {
+                    events.forEach(event -> {
+                        PaymentEvent paymentEvent = paymentEvents.get(event.getAggregateId());
+                        paymentEvent.setEventId(event.getId());
+                        paymentEvent.setPublishedOn(now);
+                        operations.convertAndSend(RabbitMQConfig.EXCHANGE, RabbitMQConfig.ROUTING_KEY, paymentEvent);
+                    });
+                    operations.waitForConfirmsOrDie(confirmTimeout);
+                    return null;
+                });
+                sample.stop(meterRegistry.timer(MetricsConfig.RABBITMQ_PUBLISH_TIMER, "result", "confirmed"));
+            } catch (RuntimeException e) {
+                sample.stop(meterRegistry.timer(MetricsConfig.RABBITMQ_PUBLISH_TIMER, "result", "failed"));
+                meterRegistry.counter(MetricsConfig.RABBITMQ_PUBLISH_FAILURES_COUNTER).increment(events.size());
+                throw e;
+            }
+
+            events.forEach(event -> event.setPublishedOn(now));
+            log.info("{} payment messages sent to transaction queue!", events.size());
+            return events.size();
+        });
+        return published == null ? 0 : published;
+    }
+
+    @Scheduled(cron = "${outbox.relay.purge-cron:0 0 * * * *}")
+    public void purgePublished() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours)));
+        log.info("{} published outbox events purged", deleted);
+    }
+}
@@ -1,83 +1,200 @@
 package com.ecommerce.demo.services;
 
-import com.ecommerce.demo.config.RabbitMQConfig;
+import com.ecommerce.demo.config.MetricsConfig;
+import com.ecommerce.demo.dtos.CursorPage;
 import com.ecommerce.demo.dtos.PaymentRequest;
+import com.ecommerce.demo.dtos.PaymentResponse;
 import com.ecommerce.demo.entity.*;
+import com.ecommerce.demo.exception.IdempotencyKeyConflictException;
+import com.ecommerce.demo.exception.InsufficientStockException;
+import com.ecommerce.demo.repository.OutboxEventRepository;
 import com.ecommerce.demo.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class PaymentService {
 
+    public static final String PAYMENT_SUCCEEDED = "PaymentSucceeded";
 
     @Autowired
     private PaymentRepository paymentRepository;
 
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private OutboxEventRepository outboxEventRepository;
 
     @Autowired
     private OrderService orderService;
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //Retried in a fresh transaction when a concurrent payment changed the order (version conflict)
+    //or inserted the same idempotency key first; the retry then sees the winner's result
+    @Retryable(retryFor = {ConcurrencyFailureException.class, DataIntegrityViolationException.class},
+            maxAttemptsExpression = "${payments.retry.max-attempts:4}",
+            backoff = @Backoff(delayExpression = "${payments.retry.delay-ms:20}", multiplier = 2, random = true))
     @Transactional
     public Payment makePayment(PaymentRequest paymentRequest){
+        //one sample per attempt, tagged with the PaymentStatus or Error when the attempt threw
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "Error";
+        try {
+            Payment payment = processPayment(paymentRequest);
+            outcome = payment.getPaymentStatus().name();
+            return payment;
+        } finally {
+            sample.stop(meterRegistry.timer(MetricsConfig.PAYMENTS_TIMER, "outcome", outcome));
+        }
+    }
+
+    private Payment processPayment(PaymentRequest paymentRequest){
+        Optional<Payment> existingPayment = findByIdempotencyKey(paymentRequest.getIdempotencyKey());
+        if(existingPayment.isPresent()){
+            log.info("Returning existing payment for idempotency key: {}", paymentRequest.getIdempotencyKey());
+            return replay(existingPayment.get(), paymentRequest);
+        }
+
         CustomerOrder customerOrder = orderService.getOrderById(paymentRequest.getOrderId());
         User user = userService.getUserById(paymentRequest.getUserId());
-        BigDecimal paymentAmount = paymentRequest.getAmount();
-        BigDecimal orderAmount = customerOrder.getOrderAmount();
+        //compared in whole cents, an amount with fractions of a cent is rejected
+        Money paymentAmount = Money.of(paymentRequest.getAmount());
+        Money orderAmount = customerOrder.getOrderAmount();
 
+        //a concurrent request with the same key may have committed after the lookup above
         if(customerOrder.getOrderStatus().equals(OrderStatus.Success)){
-            throw new RuntimeException("Order payment has been already received!");
+            return findByIdempotencyKey(paymentRequest.getIdempotencyKey())
+                    .map(payment -> replay(payment, paymentRequest))
+                    .orElseThrow(() -> new RuntimeException("Order payment has been already received!"));
         }
 
         Payment payment = Payment.builder()
                 .order(customerOrder)
                 .user(user)
                 .receivedAmount(paymentAmount)
+                .idempotencyKey(paymentRequest.getIdempotencyKey())
                 .build();
 
         //check amount and update order status if payment successful
-        if(paymentAmount.compareTo(orderAmount)<0){
+        if(paymentAmount.isLessThan(orderAmount)){
             payment.setPaymentStatus(PaymentStatus.Failed);
             payment.setErrorMessage("Insufficient amount!");
             log.info("Payment failed due to insufficient amount!");
             orderService.updateOrderStatus(customerOrder, OrderStatus.Failed);
-        } else if (paymentAmount.compareTo(orderAmount)>0) {
+        } else if (paymentAmount.isGreaterThan(orderAmount)) {
             payment.setPaymentStatus(PaymentStatus.Failed);
             payment.setErrorMessage("Payment amount exceeding order amount!");
             log.info("Payment failed due to payment amount exceeding order amount!");
             orderService.updateOrderStatus(customerOrder,OrderStatus.Failed);
         }else {
-            payment.setPaymentStatus(PaymentStatus.Success);
-            log.info("Payment processed successfully!");
-            orderService.updateOrderStatus(customerOrder,OrderStatus.Success);
-
             try {
-                rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE, RabbitMQConfig.ROUTING_KEY, payment);
-                log.info("Payment message sent to transaction queue!");
-            }catch (Exception e){
-                log.error(e.getMessage());
+                orderService.updateOrderStatus(customerOrder,OrderStatus.Success);
+                payment.setPaymentStatus(PaymentStatus.Success);
+                log.info("Payment processed successfully!");
+            } catch (InsufficientStockException e) {
+                //a retry after a failed payment: its units went back to stock then and were sold meanwhile,
+                //the order stays failed
+                payment.setPaymentStatus(PaymentStatus.Failed);
+                payment.setErrorMessage(e.getMessage());
+                log.info("Payment failed: {}", e.getMessage());
             }
         }
-        return paymentRepository.save(payment);
+        //flushed here so a version conflict on the order fails this attempt before its outcome is recorded
+        Payment savedPayment = paymentRepository.saveAndFlush(payment);
+
+        //recorded in the same transaction, OutboxRelayService publishes it to the transaction queue
+        if(savedPayment.getPaymentStatus() == PaymentStatus.Success){
+            outboxEventRepository.save(OutboxEvent.builder()
+                    .eventType(PAYMENT_SUCCEEDED)
+                    .aggregateId(savedPayment.getId())
+                    .build());
+        }
+        return savedPayment;
     }
 
-    public List<Payment> getAllPayments() {
-        return paymentRepository.findAll();
+    //a key only replays the request it was first used for
+    private static Payment replay(Payment payment, PaymentRequest paymentRequest){
+        if(!Objects.equals(payment.getOrder().getId(), paymentRequest.getOrderId())
+                || !Objects.equals(payment.getUser().getId(), paymentRequest.getUserId())
+                || payment.getReceivedAmount().toBigDecimal().compareTo(paymentRequest.getAmount()) != 0){
+            throw new IdempotencyKeyConflictException("Idempotency key " + paymentRequest.getIdempotencyKey()
+                    + " was already used for a different payment request!");
+        }
+        return payment;
     }
 
-    public Payment getPaymentById(Long id) {
-        return paymentRepository.findById(id)
+    private Optional<Payment> findByIdempotencyKey(String idempotencyKey){
+        if(idempotencyKey == null || idempotencyKey.isBlank()){
+            return Optional.empty();
+        }
+        return paymentRepository.findByIdempotencyKey(idempotencyKey);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PaymentResponse> getAllPayments(Long afterId, int limit) {
+        List<PaymentResponse> payments = paymentRepository.findPaymentResponsesAfter(afterId, Limit.of(limit + 1));
+        return CursorPage.of(payments, limit, PaymentResponse::getId);
+    }
+
+    //One user's payments newest first, filtered by status and a [from, to) creation range; pass the returned
+    //nextCreatedOn and nextAfterId as beforeCreatedOn and beforeId for the next page
+    @Transactional(readOnly = true)
+    public CursorPage<PaymentResponse> getUserPayments(Long userId, PaymentStatus status, LocalDateTime from,
+                                                       LocalDateTime to, LocalDateTime beforeCreatedOn, Long beforeId,
+                                                       int limit) {
+        if(beforeId != null && beforeCreatedOn == null){
+            //a cursor with the id only, the creation time is read from the row
+            beforeCreatedOn = paymentRepository.findCreatedOnById(beforeId)
+                    .orElseThrow(() -> new RuntimeException("Payment not found with id " + beforeId));
+        }
+        List<PaymentResponse> payments = paymentRepository.findUserPaymentResponses(userId, status, from, to,
+                beforeCreatedOn == null ? CursorPage.LATEST : beforeCreatedOn,
+                beforeId == null ? Long.MAX_VALUE : beforeId, Limit.of(limit + 1));
+        return CursorPage.of(payments, limit, PaymentResponse::getId, PaymentResponse::getCreatedOn);
+    }
+
+    //DTOs are not managed, nothing accumulates in the persistence context while streaming
+    @Transactional(readOnly = true)
+    public void streamAllPayments(Consumer<PaymentResponse> consumer) {
+        try (Stream<PaymentResponse> payments = paymentRepository.streamPaymentResponses()) {
+            payments.forEach(consumer);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public PaymentResponse getPaymentById(Long id) {
+        return paymentRepository.findPaymentResponseById(id)
                 .orElseThrow(() -> new RuntimeException("Payment not found with id " + id));
     }
+
+    public static PaymentResponse mapToPaymentResponse(Payment payment) {
+        return PaymentResponse.builder()
+                .id(payment.getId())
+                .orderId(payment.getOrder().getId())
+                .userId(payment.getUser().getId())
+                .receivedAmount(payment.getReceivedAmount().toBigDecimal())
+                .paymentStatus(payment.getPaymentStatus())
+                .errorMessage(payment.getErrorMessage())
+                .createdOn(payment.getCreatedOn())
+                .build();
+    }
 }
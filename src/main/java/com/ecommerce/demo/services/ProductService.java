@@ -1,30 +1,145 @@
 package com.ecommerce.demo.services;
 
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.dtos.CursorPage;
+import com.ecommerce.demo.dtos.ProductResponse;
 import com.ecommerce.demo.entity.Product;
-import com.ecommerce.demo.entity.User;
 import com.ecommerce.demo.repository.ProductRepository;
-import com.ecommerce.demo.repository.UserRepository;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Slf4j
 public class ProductService {
 
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    //Read-through lookup: near-cache/Hazelcast first, database only on a miss.
+    //Always a detached copy, on a miss the one just cached rather than the entity it was loaded as
     public Product getProductById(Long id){
-        return productRepository.findById(id)
+        Product cached = productCache().get(id);
+        if(cached != null){
+            cacheHits.increment();
+            return cached;
+        }
+        cacheMisses.increment();
+        log.info("fetching product {} from db!", id);
+        Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
+        Product cacheEntry = toCacheEntry(product);
+        productCache().set(id, cacheEntry);
+        return cacheEntry;
+    }
+
+    //Resolve all products of a cart with a single IN query instead of one findById per line item
+    public Map<Long, Product> getProductsByIds(Collection<Long> ids){
+        Set<Long> uniqueIds = new HashSet<>(ids);
+        Map<Long, Product> products = findProductsByIds(uniqueIds);
+
+        if(products.size() < uniqueIds.size()){
+            List<Long> missingIds = uniqueIds.stream()
+                    .filter(id -> !products.containsKey(id))
+                    .sorted()
+                    .toList();
+            throw new RuntimeException("Products not found with ids " + missingIds);
+        }
+        return products;
     }
 
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    //Cache first, one IN query for the rest; ids that do not exist are simply absent from the result
+    public Map<Long, Product> findProductsByIds(Collection<Long> ids){
+        Set<Long> uniqueIds = new HashSet<>(ids);
+        Map<Long, Product> products = new HashMap<>(productCache().getAll(uniqueIds));
+        cacheHits.add(products.size());
+
+        Set<Long> uncachedIds = new HashSet<>(uniqueIds);
+        uncachedIds.removeAll(products.keySet());
+        if(!uncachedIds.isEmpty()){
+            cacheMisses.add(uncachedIds.size());
+            log.info("fetching {} products from db!", uncachedIds.size());
+            Map<Long, Product> loaded = new HashMap<>();
+            productRepository.findAllById(uncachedIds)
+                    .forEach(product -> loaded.put(product.getId(), toCacheEntry(product)));
+            productCache().putAll(loaded);
+            products.putAll(loaded);
+        }
+        return products;
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(value = CacheConfig.PRODUCT_LIST_CACHE, key = "#afterId + ':' + #limit")
+    public CursorPage<ProductResponse> getAllProducts(Long afterId, int limit) {
+        log.info("fetching from db!");
+        List<ProductResponse> products = productRepository.findProductResponsesAfter(afterId, Limit.of(limit + 1));
+        return CursorPage.of(products, limit, ProductResponse::getId);
     }
 
+    @Transactional(readOnly = true)
+    public void streamAllProducts(Consumer<ProductResponse> consumer) {
+        try (Stream<ProductResponse> products = productRepository.streamProductResponses()) {
+            products.forEach(consumer);
+        }
+    }
+
+    //served from the product cache, the database is read only on a miss
+    public ProductResponse getProductResponseById(Long id){
+        return mapToProductResponse(getProductById(id));
+    }
+
+    public static ProductResponse mapToProductResponse(Product product) {
+        return ProductResponse.builder()
+                .id(product.getId())
+                .productName(product.getProductName())
+                .price(product.getPrice().toBigDecimal())
+                .stockQuantity(product.getStockQuantity())
+                .build();
+    }
+
+    @CacheEvict(value = CacheConfig.PRODUCT_LIST_CACHE, allEntries = true)
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        productCache().set(savedProduct.getId(), toCacheEntry(savedProduct));
+        return savedProduct;
+    }
+
+    public long getCacheHits(){
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses(){
+        return cacheMisses.sum();
+    }
+
+    private IMap<Long, Product> productCache(){
+        return hazelcastInstance.getMap(CacheConfig.PRODUCTS_CACHE);
+    }
+
+    //Detached copy without the lazy orderProducts collection so it can be serialized by hazelcast
+    private Product toCacheEntry(Product product){
+        return Product.builder()
+                .id(product.getId())
+                .productName(product.getProductName())
+                .price(product.getPrice())
+                .stockQuantity(product.getStockQuantity())
+                .build();
     }
 }
@@ -0,0 +1,30 @@
+package com.ecommerce.demo.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+//Backfill command: start the application with --reports.rebuild=true to recompute the sales aggregates and exit
+@Component
+@ConditionalOnProperty(name = "reports.rebuild", havingValue = "true")
+@Slf4j
+public class ReportRebuildRunner implements ApplicationRunner {
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Rebuilding sales aggregates");
+        reportService.rebuild();
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
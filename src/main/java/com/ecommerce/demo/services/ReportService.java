@@ -0,0 +1,134 @@
+package com.ecommerce.demo.services;
+
+import com.ecommerce.demo.dtos.PaymentEvent;
+import com.ecommerce.demo.entity.DailySales;
+import com.ecommerce.demo.entity.ProductSales;
+import com.ecommerce.demo.entity.UserSales;
+import com.ecommerce.demo.repository.DailySalesRepository;
+import com.ecommerce.demo.repository.ProductSalesRepository;
+import com.ecommerce.demo.repository.UserSalesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+@Slf4j
+public class ReportService {
+
+    //add the deltas of a batch to the existing row, or create it
+    private static final String UPSERT_USER_SALES = "insert into user_sales (user_id, order_count, revenue, updated_on) "
+            + "values (?, ?, ?, ?) on duplicate key update order_count = order_count + values(order_count), "
+            + "revenue = revenue + values(revenue), updated_on = values(updated_on)";
+    private static final String UPSERT_PRODUCT_SALES = "insert into product_sales (product_id, units_sold, revenue, updated_on) "
+            + "values (?, ?, ?, ?) on duplicate key update units_sold = units_sold + values(units_sold), "
+            + "revenue = revenue + values(revenue), updated_on = values(updated_on)";
+    private static final String UPSERT_DAILY_SALES = "insert into daily_sales (sales_date, order_count, revenue, updated_on) "
+            + "values (?, ?, ?, ?) on duplicate key update order_count = order_count + values(order_count), "
+            + "revenue = revenue + values(revenue), updated_on = values(updated_on)";
+
+    //revenue at the price each line was ordered at; lines stored before unit_price fall back to the current price
+    private static final String SELECT_ORDER_LINES = "select op.product_id, op.quantity, coalesce(op.unit_price, p.price) "
+            + "from order_product op join product p on p.id = op.product_id where op.order_id in (:orderIds)";
+
+    private static final String REBUILD_USER_SALES = "insert into user_sales (user_id, order_count, revenue, updated_on) "
+            + "select t.user_id, count(*), sum(t.amount), ? from transaction t where t.user_id is not null group by t.user_id";
+    private static final String REBUILD_PRODUCT_SALES = "insert into product_sales (product_id, units_sold, revenue, updated_on) "
+            + "select op.product_id, sum(op.quantity), sum(op.quantity * coalesce(op.unit_price, p.price)), ? from transaction t "
+            + "join order_product op on op.order_id = t.customer_order_id "
+            + "join product p on p.id = op.product_id group by op.product_id";
+    private static final String REBUILD_DAILY_SALES = "insert into daily_sales (sales_date, order_count, revenue, updated_on) "
+            + "select cast(t.created_on as date), count(*), sum(t.amount), ? from transaction t "
+            + "where t.created_on is not null group by cast(t.created_on as date)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private UserSalesRepository userSalesRepository;
+
+    @Autowired
+    private ProductSalesRepository productSalesRepository;
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    //Runs in the consumer's transaction, so the aggregates move exactly when the transaction rows are stored.
+    //Deltas are summed per key first and upserted in key order, concurrent consumers then lock rows in the same order
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSales(List<PaymentEvent> paymentEvents, LocalDateTime recordedOn) {
+        if (paymentEvents.isEmpty()) {
+            return;
+        }
+        Map<Long, long[]> orderCountByUser = new TreeMap<>();
+        Map<Long, BigDecimal> revenueByUser = new TreeMap<>();
+        for (PaymentEvent paymentEvent : paymentEvents) {
+            orderCountByUser.computeIfAbsent(paymentEvent.getUserId(), userId -> new long[1])[0]++;
+            revenueByUser.merge(paymentEvent.getUserId(), paymentEvent.getAmount(), BigDecimal::add);
+        }
+
+        Map<Long, long[]> unitsByProduct = new TreeMap<>();
+        Map<Long, BigDecimal> revenueByProduct = new TreeMap<>();
+        List<Long> orderIds = paymentEvents.stream().map(PaymentEvent::getOrderId).toList();
+        namedParameterJdbcTemplate.query(SELECT_ORDER_LINES, Map.of("orderIds", orderIds), resultSet -> {
+            long productId = resultSet.getLong(1);
+            int quantity = resultSet.getInt(2);
+            unitsByProduct.computeIfAbsent(productId, id -> new long[1])[0] += quantity;
+            revenueByProduct.merge(productId, resultSet.getBigDecimal(3).multiply(BigDecimal.valueOf(quantity)), BigDecimal::add);
+        });
+
+        Timestamp now = Timestamp.valueOf(recordedOn);
+        BigDecimal dailyRevenue = paymentEvents.stream().map(PaymentEvent::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        jdbcTemplate.update(UPSERT_DAILY_SALES, Date.valueOf(recordedOn.toLocalDate()), paymentEvents.size(), dailyRevenue, now);
+        jdbcTemplate.batchUpdate(UPSERT_USER_SALES, orderCountByUser.entrySet().stream()
+                .map(entry -> new Object[]{entry.getKey(), entry.getValue()[0], revenueByUser.get(entry.getKey()), now})
+                .toList());
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT_SALES, unitsByProduct.entrySet().stream()
+                .map(entry -> new Object[]{entry.getKey(), entry.getValue()[0], revenueByProduct.get(entry.getKey()), now})
+                .toList());
+    }
+
+    //Recomputes every aggregate from the transaction table, for backfills and after changing the aggregation
+    @Transactional
+    public void rebuild() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("delete from user_sales");
+        jdbcTemplate.update("delete from product_sales");
+        jdbcTemplate.update("delete from daily_sales");
+        int users = jdbcTemplate.update(REBUILD_USER_SALES, now);
+        int products = jdbcTemplate.update(REBUILD_PRODUCT_SALES, now);
+        int days = jdbcTemplate.update(REBUILD_DAILY_SALES, now);
+        log.info("Sales aggregates rebuilt: {} users, {} products, {} days", users, products, days);
+    }
+
+    //Reads are primary key lookups on the aggregate tables; a user or product without sales reports zeros
+    public UserSales getUserSales(Long userId) {
+        return userSalesRepository.findById(userId)
+                .orElseGet(() -> UserSales.builder().userId(userId).revenue(BigDecimal.ZERO).build());
+    }
+
+    public ProductSales getProductSales(Long productId) {
+        return productSalesRepository.findById(productId)
+                .orElseGet(() -> ProductSales.builder().productId(productId).revenue(BigDecimal.ZERO).build());
+    }
+
+    public List<DailySales> getDailySales(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new RuntimeException("from must not be after to");
+        }
+        return dailySalesRepository.findBySalesDateBetweenOrderBySalesDateAsc(from, to);
+    }
+}
@@ -0,0 +1,438 @@
+package com.ecommerce.demo.services;
+
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.config.MetricsConfig;
+import com.ecommerce.demo.dtos.StockLevel;
+import com.ecommerce.demo.entity.OrderProduct;
+import com.ecommerce.demo.entity.OrderStatus;
+import com.ecommerce.demo.exception.InsufficientStockException;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import com.hazelcast.query.Predicates;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * Stock reservations on the Hazelcast stock map. Every change runs as an entry processor on the partition
+ * thread that owns the product, so a hot product never waits on a database row lock; reservations of
+ * different products proceed in parallel on their own partitions. Changed on-hand quantities are written
+ * back to product.stock_quantity by {@link #writeBack()}.
+ * <p>
+ * A pending order holds a reservation for its lines, a successful payment turns it into a sale and a
+ * failed payment or a deleted pending order releases it. Reservations are taken immediately and given
+ * back if the surrounding transaction rolls back; sales and releases apply once it commits. Reservations of
+ * untracked products are counted as well, never rejected, so the count is live when tracking starts.
+ */
+@Service
+@Slf4j
+public class StockService {
+
+    private static final String SELECT_STOCK = "select id, stock_quantity from product where id in (:ids)";
+
+    //rebuilt from the database when a product is first used, pending orders hold their reservations
+    private static final String SELECT_RESERVED = "select op.product_id, sum(op.quantity) from order_product op "
+            + "join customer_order o on o.id = op.order_id "
+            + "where o.order_status = 'Pending' and op.product_id in (:ids) group by op.product_id";
+
+    private static final String UPDATE_STOCK = "update product set stock_quantity = ? where id = ?";
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    //Reserves every quantity or none: on a shortage the products already reserved are released again
+    public void reserve(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Map<Long, Boolean> reserved = process(quantities.keySet(), new ReserveProcessor(quantities), true);
+        Map<Long, Integer> taken = new HashMap<>();
+        List<Long> shortIds = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            if (Boolean.FALSE.equals(reserved.get(productId))) {
+                shortIds.add(productId);
+            } else {
+                taken.put(productId, quantity);
+            }
+        });
+        if (!shortIds.isEmpty()) {
+            release(taken, false);
+            meterRegistry.counter(MetricsConfig.STOCK_RESERVATIONS_COUNTER, "result", "rejected").increment();
+            Collections.sort(shortIds);
+            throw new InsufficientStockException("Insufficient stock for products " + shortIds);
+        }
+        meterRegistry.counter(MetricsConfig.STOCK_RESERVATIONS_COUNTER, "result", "reserved").increment();
+        onRollback(() -> release(taken, false));
+    }
+
+    //Moves a pending order's reservation from one set of lines to another, reserving only the increases
+    public void adjustReservation(Map<Long, Integer> previous, Map<Long, Integer> updated) {
+        Map<Long, Integer> increases = new HashMap<>();
+        Map<Long, Integer> decreases = new HashMap<>();
+        Set<Long> productIds = new HashSet<>(previous.keySet());
+        productIds.addAll(updated.keySet());
+        for (Long productId : productIds) {
+            int delta = updated.getOrDefault(productId, 0) - previous.getOrDefault(productId, 0);
+            if (delta > 0) {
+                increases.put(productId, delta);
+            } else if (delta < 0) {
+                decreases.put(productId, -delta);
+            }
+        }
+        reserve(increases);
+        release(decreases);
+    }
+
+    //Applies the stock side of an order status change; called before the status is saved
+    public void onOrderStatusChange(Map<Long, Integer> quantities, OrderStatus previous, OrderStatus next) {
+        if (previous == OrderStatus.Pending && next == OrderStatus.Success) {
+            commit(quantities);
+        } else if (previous == OrderStatus.Pending && next == OrderStatus.Failed) {
+            release(quantities);
+        } else if (previous == OrderStatus.Failed && next == OrderStatus.Success) {
+            //the reservation went back when the earlier payment failed, take the units again;
+            //throws InsufficientStockException, before anything changed, if they were sold meanwhile
+            reserve(quantities);
+            commit(quantities);
+        }
+    }
+
+    //Turns reserved units into a sale once the transaction commits
+    public void commit(Map<Long, Integer> quantities) {
+        if (!quantities.isEmpty()) {
+            afterCommit(() -> checkUnderflow(process(quantities.keySet(), new CommitProcessor(quantities), true), "sold"));
+        }
+    }
+
+    //Gives reserved units back once the transaction commits
+    public void release(Map<Long, Integer> quantities) {
+        release(quantities, true);
+    }
+
+    //A product missing from the map is not loaded for a release, the pending orders it is rebuilt from
+    //no longer include the released units
+    private void release(Map<Long, Integer> quantities, boolean deferred) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Runnable release = () -> checkUnderflow(process(quantities.keySet(), new ReleaseProcessor(quantities), false), "released");
+        if (deferred) {
+            afterCommit(release);
+        } else {
+            release.run();
+        }
+    }
+
+    //Sets the on-hand quantity, for new products and restocking; null stops tracking the product
+    public StockLevel setStock(Long productId, Integer quantity) {
+        if (quantity != null && quantity < 0) {
+            throw new RuntimeException("Stock quantity must not be negative");
+        }
+        StockLevel stockLevel = process(Set.of(productId), new SetStockProcessor(quantity), true).get(productId);
+        if (stockLevel == null) {
+            throw new RuntimeException("Product not found");
+        }
+        return stockLevel;
+    }
+
+    public StockLevel getStock(Long productId) {
+        StockLevel stockLevel = stockLevels().get(productId);
+        if (stockLevel == null) {
+            loadStockLevels(Set.of(productId));
+            stockLevel = stockLevels().get(productId);
+        }
+        if (stockLevel == null) {
+            throw new RuntimeException("Product not found");
+        }
+        return stockLevel;
+    }
+
+    //Each member writes back the products it owns; an entry stays dirty if it changed again in the meantime.
+    //Clients own none, the members write back for them
+    @Scheduled(fixedDelayString = "${stock.write-back-interval-ms:1000}")
+    @PreDestroy
+    public void writeBack() {
+        if (!CacheConfig.isMember(hazelcastInstance)) {
+            return;
+        }
+        try {
+            IMap<Long, StockLevel> stockLevels = stockLevels();
+            Set<Long> dirtyIds = stockLevels.localKeySet(Predicates.equal("dirty", true));
+            if (dirtyIds.isEmpty()) {
+                return;
+            }
+            Map<Long, Long> written = new TreeMap<>();
+            stockLevels.getAll(dirtyIds).forEach((productId, stockLevel) ->
+                    written.put(productId, stockLevel.isTracked() ? stockLevel.getOnHand() : null));
+            jdbcTemplate.batchUpdate(UPDATE_STOCK, written.entrySet().stream()
+                    .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                    .toList());
+            stockLevels.executeOnKeys(written.keySet(), new MarkWrittenProcessor(written));
+            //cached product copies and list pages carry the stock quantity too
+            IMap<Long, Object> productCache = hazelcastInstance.getMap(CacheConfig.PRODUCTS_CACHE);
+            written.keySet().forEach(productCache::delete);
+            Optional.ofNullable(cacheManager.getCache(CacheConfig.PRODUCT_LIST_CACHE)).ifPresent(Cache::clear);
+            log.info("Stock of {} products written back", written.size());
+        } catch (Exception e) {
+            //entries stay dirty and are written on the next run
+            log.error("Stock write-back failed: {}", e.getMessage());
+        }
+    }
+
+    //More units sold or released than were reserved means the reservation count drifted from the pending
+    //orders; reserved is kept at 0 and the drift reported
+    private void checkUnderflow(Map<Long, Boolean> results, String operation) {
+        List<Long> productIds = results.entrySet().stream()
+                .filter(result -> Boolean.FALSE.equals(result.getValue()))
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+        if (!productIds.isEmpty()) {
+            log.warn("More units {} than reserved for products {}", operation, productIds);
+            meterRegistry.counter(MetricsConfig.STOCK_RESERVATIONS_COUNTER, "result", "underflow").increment(productIds.size());
+        }
+    }
+
+    public static Map<Long, Integer> quantitiesOf(Collection<OrderProduct> orderProducts) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        orderProducts.forEach(orderProduct ->
+                quantities.merge(orderProduct.getProduct().getId(), orderProduct.getQuantity(), Integer::sum));
+        return quantities;
+    }
+
+    //Runs the processor on each product, loading the ones not in the map yet and running again for them.
+    //Processors return null for a missing entry, so products that do not exist are absent from the result
+    private <R> Map<Long, R> process(Set<Long> productIds, EntryProcessor<Long, StockLevel, R> processor, boolean load) {
+        Map<Long, R> results = execute(productIds, processor);
+        if (load && results.size() < productIds.size()) {
+            Set<Long> missingIds = new HashSet<>(productIds);
+            missingIds.removeAll(results.keySet());
+            loadStockLevels(missingIds);
+            results.putAll(execute(missingIds, processor));
+        }
+        return results;
+    }
+
+    //A single product, the common case for hot items, goes straight to its partition instead of a multi-key operation
+    private <R> Map<Long, R> execute(Set<Long> productIds, EntryProcessor<Long, StockLevel, R> processor) {
+        Map<Long, R> results = new HashMap<>();
+        if (productIds.size() == 1) {
+            Long productId = productIds.iterator().next();
+            R result = stockLevels().executeOnKey(productId, processor);
+            if (result != null) {
+                results.put(productId, result);
+            }
+            return results;
+        }
+        stockLevels().executeOnKeys(productIds, processor).forEach((productId, result) -> {
+            if (result != null) {
+                results.put(productId, result);
+            }
+        });
+        return results;
+    }
+
+    //Adds the stock of products missing from the map, rebuilt from the database
+    private void loadStockLevels(Set<Long> productIds) {
+        Map<Long, Long> reserved = selectReserved(productIds);
+        IMap<Long, StockLevel> stockLevels = stockLevels();
+        namedParameterJdbcTemplate.query(SELECT_STOCK, Map.of("ids", productIds), resultSet -> {
+            long productId = resultSet.getLong(1);
+            long stockQuantity = resultSet.getLong(2);
+            //another member or thread may have loaded it first, its entry already carries newer changes
+            stockLevels.putIfAbsent(productId, StockLevel.builder()
+                    .productId(productId)
+                    .tracked(!resultSet.wasNull())
+                    .onHand(stockQuantity)
+                    .reserved(reserved.getOrDefault(productId, 0L))
+                    .build());
+        });
+    }
+
+    private Map<Long, Long> selectReserved(Set<Long> productIds) {
+        Map<Long, Long> reserved = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_RESERVED, Map.of("ids", productIds), resultSet -> {
+            reserved.put(resultSet.getLong(1), resultSet.getLong(2));
+        });
+        return reserved;
+    }
+
+    private IMap<Long, StockLevel> stockLevels() {
+        return hazelcastInstance.getMap(CacheConfig.STOCK_MAP);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    //Entry processors run on the partition thread owning each key, one at a time per key, and are
+    //applied to the backup replica as well
+
+    static class ReserveProcessor implements EntryProcessor<Long, StockLevel, Boolean> {
+
+        private final Map<Long, Integer> quantities;
+
+        ReserveProcessor(Map<Long, Integer> quantities) {
+            this.quantities = new HashMap<>(quantities);
+        }
+
+        @Override
+        public Boolean process(Map.Entry<Long, StockLevel> entry) {
+            StockLevel stockLevel = entry.getValue();
+            if (stockLevel == null) {
+                return null;
+            }
+            int quantity = quantities.get(entry.getKey());
+            if (stockLevel.isTracked() && stockLevel.getAvailable() < quantity) {
+                return false;
+            }
+            stockLevel.setReserved(stockLevel.getReserved() + quantity);
+            entry.setValue(stockLevel);
+            return true;
+        }
+    }
+
+    static class ReleaseProcessor implements EntryProcessor<Long, StockLevel, Boolean> {
+
+        private final Map<Long, Integer> quantities;
+
+        ReleaseProcessor(Map<Long, Integer> quantities) {
+            this.quantities = new HashMap<>(quantities);
+        }
+
+        @Override
+        public Boolean process(Map.Entry<Long, StockLevel> entry) {
+            StockLevel stockLevel = entry.getValue();
+            if (stockLevel == null) {
+                return null;
+            }
+            long reserved = stockLevel.getReserved() - quantities.get(entry.getKey());
+            stockLevel.setReserved(Math.max(0, reserved));
+            entry.setValue(stockLevel);
+            //false: more released than was reserved
+            return reserved >= 0;
+        }
+    }
+
+    static class CommitProcessor implements EntryProcessor<Long, StockLevel, Boolean> {
+
+        private final Map<Long, Integer> quantities;
+
+        CommitProcessor(Map<Long, Integer> quantities) {
+            this.quantities = new HashMap<>(quantities);
+        }
+
+        @Override
+        public Boolean process(Map.Entry<Long, StockLevel> entry) {
+            StockLevel stockLevel = entry.getValue();
+            if (stockLevel == null) {
+                return null;
+            }
+            int quantity = quantities.get(entry.getKey());
+            long reserved = stockLevel.getReserved() - quantity;
+            stockLevel.setReserved(Math.max(0, reserved));
+            //an untracked product has no units on hand to take the sale from
+            if (stockLevel.isTracked()) {
+                stockLevel.setOnHand(stockLevel.getOnHand() - quantity);
+                stockLevel.setDirty(true);
+            }
+            entry.setValue(stockLevel);
+            //false: more sold than was reserved
+            return reserved >= 0;
+        }
+    }
+
+    static class SetStockProcessor implements EntryProcessor<Long, StockLevel, StockLevel> {
+
+        private final Integer quantity;
+
+        SetStockProcessor(Integer quantity) {
+            this.quantity = quantity;
+        }
+
+        @Override
+        public StockLevel process(Map.Entry<Long, StockLevel> entry) {
+            StockLevel stockLevel = entry.getValue();
+            if (stockLevel == null) {
+                return null;
+            }
+            //reserved is live whether tracked or not, only the units on hand change
+            stockLevel.setTracked(quantity != null);
+            stockLevel.setOnHand(quantity == null ? 0 : quantity);
+            stockLevel.setDirty(true);
+            entry.setValue(stockLevel);
+            return stockLevel;
+        }
+    }
+
+    static class MarkWrittenProcessor implements EntryProcessor<Long, StockLevel, Void> {
+
+        private final Map<Long, Long> written;
+
+        MarkWrittenProcessor(Map<Long, Long> written) {
+            this.written = new HashMap<>(written);
+        }
+
+        @Override
+        public Void process(Map.Entry<Long, StockLevel> entry) {
+            StockLevel stockLevel = entry.getValue();
+            if (stockLevel == null) {
+                return null;
+            }
+            Long onHand = written.get(entry.getKey());
+            boolean unchanged = stockLevel.isTracked() ? onHand != null && onHand == stockLevel.getOnHand() : onHand == null;
+            if (unchanged) {
+                stockLevel.setDirty(false);
+                entry.setValue(stockLevel);
+            }
+            return null;
+        }
+    }
+}
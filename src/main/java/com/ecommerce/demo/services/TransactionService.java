@@ -1,32 +1,183 @@
 package com.ecommerce.demo.services;
 
+import com.ecommerce.demo.config.MetricsConfig;
 import com.ecommerce.demo.config.RabbitMQConfig;
+import com.ecommerce.demo.dtos.PaymentEvent;
 import com.ecommerce.demo.entity.Payment;
-import com.ecommerce.demo.entity.Transaction;
-import com.ecommerce.demo.repository.TransactionRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @Slf4j
 public class TransactionService {
 
+    //a plain read: a locking read of payment ids not stored yet takes gap locks on InnoDB, and two consumers holding
+    //them deadlock on each other's inserts
+    private static final String SELECT_RECORDED_PAYMENTS = "select payment_id from transaction where payment_id in (:paymentIds)";
+
+    //no ignore: on MySQL it also skips foreign key violations, so rows would be counted as sold without being stored.
+    //A payment another consumer stored since the read fails uk_transaction_payment instead
+    private static final String INSERT_TRANSACTION = "insert into transaction "
+            + "(payment_id, customer_order_id, user_id, amount, created_on, updated_on) values (?, ?, ?, ?, ?, ?)";
+
     @Autowired
-    private TransactionRepository transactionRepository;
+    private JdbcTemplate jdbcTemplate;
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE)
-    public void consumePayments(Payment payment){
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
-        log.info("Transaction queue message with id: {} consumed!",payment.getId());
-        Transaction transaction = Transaction.builder()
-                .amount(payment.getReceivedAmount())
-                .user(payment.getUser())
-                .customerOrder(payment.getOrder())
-                .build();
-        transactionRepository.save(transaction);
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    //One JDBC batch, one sales aggregate update and one commit per delivery; the container acks the batch only after this method returns.
+    //A row that breaks a constraint (its order or user was deleted, or another consumer stored the same payment since the read)
+    //fails the whole batch, so the events are then stored one per transaction: the read now skips payments stored meanwhile
+    //and only the rows that still fail are dead-lettered. Any other failure propagates: the container retries
+    //the delivery with backoff and then rejects it to the dead letter queue
+    @RabbitListener(queues = RabbitMQConfig.QUEUE, containerFactory = RabbitMQConfig.TRANSACTION_BATCH_LISTENER_FACTORY)
+    @Timed(MetricsConfig.TRANSACTIONS_CONSUME_TIMER)
+    public void consumePayments(List<Message> messages){
+
+        List<PaymentEvent> paymentEvents = new ArrayList<>(messages.size());
+        List<Message> eventMessages = new ArrayList<>(messages.size());
+        List<Message> poisonMessages = new ArrayList<>();
+        for (Message message : messages) {
+            PaymentEvent paymentEvent = toPaymentEvent(message);
+            if (paymentEvent == null) {
+                poisonMessages.add(message);
+            } else {
+                paymentEvents.add(paymentEvent);
+                eventMessages.add(message);
+            }
+        }
+
+        if (!paymentEvents.isEmpty()) {
+            try {
+                transactionTemplate.execute(status -> store(paymentEvents));
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Transaction batch of {} rejected by the database, storing events one by one: {}",
+                        paymentEvents.size(), e.getMostSpecificCause().getMessage());
+                for (int i = 0; i < paymentEvents.size(); i++) {
+                    List<PaymentEvent> single = List.of(paymentEvents.get(i));
+                    try {
+                        transactionTemplate.execute(status -> store(single));
+                    } catch (DuplicateKeyException duplicate) {
+                        //stored by another consumer between this read and insert
+                        log.info("Payment {} already stored, skipped", paymentEvents.get(i).getPaymentId());
+                        meterRegistry.counter(MetricsConfig.TRANSACTIONS_MESSAGES_COUNTER, "result", "duplicate").increment();
+                    } catch (DataIntegrityViolationException rowError) {
+                        log.error("Payment {} can never be stored: {}", paymentEvents.get(i).getPaymentId(),
+                                rowError.getMostSpecificCause().getMessage());
+                        poisonMessages.add(eventMessages.get(i));
+                    }
+                }
+            }
+        }
+
+        //sent once the rows are committed and outside any transaction, a rolled back delivery never dead-letters anything
+        poisonMessages.forEach(message ->
+                rabbitTemplate.send(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, message));
+        if (!poisonMessages.isEmpty()) {
+            log.error("{} unprocessable transaction messages routed to {}", poisonMessages.size(), RabbitMQConfig.DEAD_LETTER_QUEUE);
+            meterRegistry.counter(MetricsConfig.TRANSACTIONS_MESSAGES_COUNTER, "result", "dead-lettered").increment(poisonMessages.size());
+        }
+    }
+
+    //The relay publishes at least once, so an event may arrive again after its row was stored: events of payments
+    //already in the table, or twice in the batch, are skipped and only the new ones reach the sales aggregates
+    private int store(List<PaymentEvent> paymentEvents){
+        Map<Long, PaymentEvent> byPayment = new LinkedHashMap<>();
+        paymentEvents.forEach(paymentEvent -> byPayment.putIfAbsent(paymentEvent.getPaymentId(), paymentEvent));
+        byPayment.keySet().removeAll(namedParameterJdbcTemplate.queryForList(SELECT_RECORDED_PAYMENTS,
+                Map.of("paymentIds", byPayment.keySet()), Long.class));
+        List<PaymentEvent> newEvents = new ArrayList<>(byPayment.values());
 
-        log.info("Transaction :{} saved successfully!",transaction.getId());
+        int duplicates = paymentEvents.size() - newEvents.size();
+        if (duplicates > 0) {
+            log.info("{} payment events already stored, skipped", duplicates);
+            meterRegistry.counter(MetricsConfig.TRANSACTIONS_MESSAGES_COUNTER, "result", "duplicate").increment(duplicates);
+        }
+        if (newEvents.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime recordedOn = LocalDateTime.now();
+        Timestamp now = Timestamp.valueOf(recordedOn);
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, newEvents, newEvents.size(), (ps, paymentEvent) -> {
+            ps.setLong(1, paymentEvent.getPaymentId());
+            ps.setLong(2, paymentEvent.getOrderId());
+            ps.setLong(3, paymentEvent.getUserId());
+            ps.setBigDecimal(4, paymentEvent.getAmount());
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+        });
+        reportService.recordSales(newEvents, recordedOn);
+        log.info("{} transactions saved successfully!", newEvents.size());
+        meterRegistry.counter(MetricsConfig.TRANSACTIONS_MESSAGES_COUNTER, "result", "stored").increment(newEvents.size());
+        return newEvents.size();
+    }
+
+    //Returns null for messages that can never be processed so they are dead-lettered instead of redelivered
+    private PaymentEvent toPaymentEvent(Message message){
+        try {
+            Object payload = messageConverter.fromMessage(message);
+            PaymentEvent paymentEvent = null;
+            if (payload instanceof PaymentEvent event) {
+                paymentEvent = event;
+            } else if (payload instanceof Payment payment) {
+                paymentEvent = fromLegacyPayment(payment);
+            }
+            if (paymentEvent != null && paymentEvent.getPaymentId() != null && paymentEvent.getOrderId() != null
+                    && paymentEvent.getUserId() != null && paymentEvent.getAmount() != null) {
+                return paymentEvent;
+            }
+            log.error("Invalid transaction queue message: {}", payload);
+        } catch (Exception e) {
+            log.error("Transaction queue message could not be converted: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    //Full Payment entities published before PaymentEvent existed, still drained from the queue after an upgrade
+    private PaymentEvent fromLegacyPayment(Payment payment){
+        return PaymentEvent.builder()
+                .version(0)
+                .paymentId(payment.getId())
+                .orderId(payment.getOrder() == null ? null : payment.getOrder().getId())
+                .userId(payment.getUser() == null ? null : payment.getUser().getId())
+                .amount(payment.getReceivedAmount().toBigDecimal())
+                .paidOn(payment.getCreatedOn())
+                .build();
     }
 }
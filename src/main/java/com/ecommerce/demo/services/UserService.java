@@ -1,11 +1,22 @@
 package com.ecommerce.demo.services;
 
+import com.ecommerce.demo.dtos.CursorPage;
+import com.ecommerce.demo.dtos.UserResponse;
 import com.ecommerce.demo.entity.User;
 import com.ecommerce.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
@@ -18,11 +29,41 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
+    //One IN query for many users; ids that do not exist are absent from the result
+    public Map<Long, User> getUsersByIds(Collection<Long> ids){
+        return userRepository.findAllById(new HashSet<>(ids)).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
     public User createUser(User user) {
         return userRepository.save(user);
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    @Transactional(readOnly = true)
+    public UserResponse getUserResponseById(Long id){
+        return userRepository.findUserResponseById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<UserResponse> getAllUsers(Long afterId, int limit) {
+        List<UserResponse> users = userRepository.findUserResponsesAfter(afterId, Limit.of(limit + 1));
+        return CursorPage.of(users, limit, UserResponse::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<UserResponse> consumer) {
+        try (Stream<UserResponse> users = userRepository.streamUserResponses()) {
+            users.forEach(consumer);
+        }
+    }
+
+    public static UserResponse mapToUserResponse(User user) {
+        return UserResponse.builder()
+                .id(user.getId())
+                .userName(user.getUserName())
+                .email(user.getEmail())
+                .phone(user.getPhone())
+                .build();
     }
 }
@@ -0,0 +1,60 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.exception.TooManyRequestsException;
+import com.ecommerce.demo.services.AdmissionControlService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the admission check adds to a write request on a local member: a user and a global bucket update when
+ * the request is admitted, and the cost of turning it away once the user's bucket is empty. A rejection has to
+ * stay far below the cost of the order it saves the database from, or overload still piles up latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdmissionControlBenchmark {
+
+    @Param({"admitted", "rejected"})
+    private String outcome;
+
+    private ConfigurableApplicationContext context;
+
+    private AdmissionControlService admissionControlService;
+
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //buckets that never run dry, or a user bucket of one token that does not refill within the run
+        context = "admitted".equals(outcome)
+                ? BenchmarkApplication.start("admission.user.capacity=1000000000", "admission.user.refill-per-second=1000000000",
+                        "admission.global.capacity=1000000000", "admission.global.refill-per-second=1000000000")
+                : BenchmarkApplication.start("admission.user.capacity=1", "admission.user.refill-per-second=0.001");
+        admissionControlService = context.getBean(AdmissionControlService.class);
+        userId = BenchmarkApplication.createUser(context).getId();
+        if ("rejected".equals(outcome)) {
+            admissionControlService.admit("orders", userId);
+        }
+    }
+
+    @Benchmark
+    public boolean admit() {
+        try {
+            admissionControlService.admit("orders", userId);
+            return true;
+        } catch (TooManyRequestsException e) {
+            return false;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
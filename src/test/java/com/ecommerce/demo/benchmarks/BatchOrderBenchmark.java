@@ -0,0 +1,72 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.dtos.BatchOrderResult;
+import com.ecommerce.demo.dtos.OrderRequest;
+import com.ecommerce.demo.dtos.ProductQuantity;
+import com.ecommerce.demo.entity.User;
+import com.ecommerce.demo.services.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * POST /orders/batch against the same orders placed one by one, on the H2 test profile.
+ * Each operation places {@code batchSize} orders of five lines, so scores compare directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchOrderBenchmark {
+
+    private static final int LINES_PER_ORDER = 5;
+
+    @Param({"10", "100", "500"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+
+    private OrderService orderService;
+
+    private List<OrderRequest> orderRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+
+        User user = BenchmarkApplication.createUser(context);
+        List<Long> productIds = BenchmarkApplication.createProducts(context, 50);
+        orderRequests = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            List<ProductQuantity> products = new ArrayList<>(LINES_PER_ORDER);
+            for (int line = 0; line < LINES_PER_ORDER; line++) {
+                products.add(new ProductQuantity(productIds.get((i + line * 7) % productIds.size()), 1 + line));
+            }
+            orderRequests.add(new OrderRequest(user.getId(), products));
+        }
+    }
+
+    @Benchmark
+    public List<BatchOrderResult> placeOrdersInBatch() {
+        return orderService.placeOrders(orderRequests);
+    }
+
+    @Benchmark
+    public void placeOrdersOneByOne(Blackhole blackhole) {
+        for (OrderRequest orderRequest : orderRequests) {
+            blackhole.consume(orderService.placeOrder(orderRequest));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
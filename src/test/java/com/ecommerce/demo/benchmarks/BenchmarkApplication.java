@@ -0,0 +1,73 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.DemoApplication;
+import com.ecommerce.demo.entity.Money;
+import com.ecommerce.demo.entity.Product;
+import com.ecommerce.demo.entity.User;
+import com.ecommerce.demo.services.ProductService;
+import com.ecommerce.demo.services.UserService;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Starts the application on the H2 test profile, without web server or RabbitMQ listeners, for service level benchmarks
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    //extra properties are passed as command line arguments so they override application.yml, for benchmarks comparing settings
+    static ConfigurableApplicationContext start(String... properties) {
+        return builder().run(arguments(properties));
+    }
+
+    //same, with a simulated network round trip on every statement as against a database server
+    static ConfigurableApplicationContext startWithRoundTrip(long roundTripMicros, String... properties) {
+        return builder()
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+                    @Override
+                    public Object postProcessAfterInitialization(Object bean, String beanName) {
+                        return bean instanceof DataSource dataSource
+                                ? RoundTripDataSource.wrap(dataSource, TimeUnit.MICROSECONDS.toNanos(roundTripMicros)) : bean;
+                    }
+                }))
+                .run(arguments(properties));
+    }
+
+    private static SpringApplicationBuilder builder() {
+        return new SpringApplicationBuilder(DemoApplication.class)
+                .profiles("test")
+                .properties(
+                        "spring.main.web-application-type=none",
+                        "spring.rabbitmq.listener.simple.auto-startup=false",
+                        "logging.level.root=WARN");
+    }
+
+    private static String[] arguments(String... properties) {
+        return Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new);
+    }
+
+    static User createUser(ConfigurableApplicationContext context) {
+        return context.getBean(UserService.class)
+                .createUser(User.builder().userName("rahim").email("rahim@xyz.com").build());
+    }
+
+    static List<Long> createProducts(ConfigurableApplicationContext context, int count) {
+        ProductService productService = context.getBean(ProductService.class);
+        List<Long> productIds = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            productIds.add(productService.createProduct(Product.builder()
+                    .productName("Product " + i)
+                    .price(Money.of(new BigDecimal("19.99")))
+                    .build()).getId());
+        }
+        return productIds;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.dtos.PaymentEvent;
+import com.ecommerce.demo.entity.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+//Detached entity graphs shared by the benchmarks, shaped like what the services work with
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static CustomerOrder order(int cartSize) {
+        User user = User.builder().id(1L).userName("rahim").email("rahim@xyz.com").build();
+        CustomerOrder order = CustomerOrder.builder()
+                .id(1L)
+                .user(user)
+                .orderStatus(OrderStatus.Pending)
+                .createdOn(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .build();
+
+        List<OrderProduct> orderProducts = new ArrayList<>(cartSize);
+        for (long i = 1; i <= cartSize; i++) {
+            Product product = Product.builder()
+                    .id(i)
+                    .productName("Product " + i)
+                    .price(Money.of(new BigDecimal("19.99").add(BigDecimal.valueOf(i, 2))))
+                    .build();
+            orderProducts.add(OrderProduct.builder()
+                    .id(i)
+                    .order(order)
+                    .product(product)
+                    .quantity((int) (i % 5) + 1)
+                    .build());
+        }
+        order.setOrderProducts(orderProducts);
+        order.setOrderAmount(Money.of(new BigDecimal("100.00")));
+        return order;
+    }
+
+    static Payment payment(int cartSize) {
+        CustomerOrder order = order(cartSize);
+        return Payment.builder()
+                .id(1L)
+                .order(order)
+                .user(order.getUser())
+                .receivedAmount(order.getOrderAmount())
+                .paymentStatus(PaymentStatus.Success)
+                .createdOn(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .build();
+    }
+
+    static PaymentEvent paymentEvent() {
+        return PaymentEvent.builder()
+                .version(PaymentEvent.CURRENT_VERSION)
+                .eventId(42L)
+                .paymentId(7L)
+                .orderId(3L)
+                .userId(2L)
+                .amount(new BigDecimal("175.50"))
+                .paidOn(LocalDateTime.now())
+                .publishedOn(LocalDateTime.now())
+                .build();
+    }
+}
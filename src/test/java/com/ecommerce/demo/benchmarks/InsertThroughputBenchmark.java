@@ -0,0 +1,80 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.dtos.BatchOrderResult;
+import com.ecommerce.demo.dtos.OrderRequest;
+import com.ecommerce.demo.dtos.ProductQuantity;
+import com.ecommerce.demo.entity.User;
+import com.ecommerce.demo.services.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows inserted per second by POST /orders/batch with Hibernate's defaults (no JDBC batching, inserts in
+ * flush order) against the batching settings of application.yml and the prod profile. Each operation
+ * inserts 500 orders of five lines, 3,000 rows, on the H2 test profile with a simulated round trip of
+ * {@code roundTripMicros} per statement; at 0 the in-memory database hides the difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(InsertThroughputBenchmark.ROWS_PER_INVOCATION)
+public class InsertThroughputBenchmark {
+
+    private static final int ORDERS = 500;
+    private static final int LINES_PER_ORDER = 5;
+    static final int ROWS_PER_INVOCATION = ORDERS * (1 + LINES_PER_ORDER);
+
+    @Param({"defaults", "tuned"})
+    private String settings;
+
+    @Param({"0", "200"})
+    private long roundTripMicros;
+
+    private ConfigurableApplicationContext context;
+
+    private OrderService orderService;
+
+    private List<OrderRequest> orderRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = "defaults".equals(settings)
+                ? BenchmarkApplication.startWithRoundTrip(roundTripMicros,
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=1",
+                        "spring.jpa.properties.hibernate.order_inserts=false",
+                        "spring.jpa.properties.hibernate.order_updates=false")
+                : BenchmarkApplication.startWithRoundTrip(roundTripMicros,
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+                        "spring.jpa.properties.hibernate.order_inserts=true",
+                        "spring.jpa.properties.hibernate.order_updates=true");
+        orderService = context.getBean(OrderService.class);
+
+        User user = BenchmarkApplication.createUser(context);
+        List<Long> productIds = BenchmarkApplication.createProducts(context, 50);
+        orderRequests = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            List<ProductQuantity> products = new ArrayList<>(LINES_PER_ORDER);
+            for (int line = 0; line < LINES_PER_ORDER; line++) {
+                products.add(new ProductQuantity(productIds.get((i + line * 7) % productIds.size()), 1 + line));
+            }
+            orderRequests.add(new OrderRequest(user.getId(), products));
+        }
+    }
+
+    @Benchmark
+    public List<BatchOrderResult> insertOrders() {
+        return orderService.placeOrders(orderRequests);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
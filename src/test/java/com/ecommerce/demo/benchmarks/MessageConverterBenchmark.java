@@ -0,0 +1,60 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.config.RabbitMQConfig;
+import com.ecommerce.demo.dtos.PaymentEvent;
+import com.ecommerce.demo.entity.Payment;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.concurrent.TimeUnit;
+
+//RabbitMQ message conversion for each supported wire format, plus the legacy Payment entity message
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageConverterBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private MessageConverter converter;
+
+    private PaymentEvent paymentEvent;
+
+    private Message paymentEventMessage;
+
+    private Jackson2JsonMessageConverter legacyConverter;
+
+    private Payment legacyPayment;
+
+    @Setup
+    public void setUp() {
+        converter = new RabbitMQConfig().messageConverter(format);
+        paymentEvent = BenchmarkData.paymentEvent();
+        paymentEventMessage = converter.toMessage(paymentEvent, new MessageProperties());
+        legacyConverter = new Jackson2JsonMessageConverter();
+        legacyPayment = BenchmarkData.payment(3);
+    }
+
+    @Benchmark
+    public Message toMessage() {
+        return converter.toMessage(paymentEvent, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object fromMessage() {
+        return converter.fromMessage(paymentEventMessage);
+    }
+
+    //baseline: what the producer sent before PaymentEvent, independent of the format parameter
+    @Benchmark
+    public Message legacyPaymentToMessage() {
+        return legacyConverter.toMessage(legacyPayment, new MessageProperties());
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.entity.CustomerOrder;
+import com.ecommerce.demo.entity.Money;
+import com.ecommerce.demo.entity.OrderProduct;
+import com.ecommerce.demo.services.OrderService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+//Order amount computation and entity to OrderResponse mapping, per cart size; the amount in Money cents
+//against the BigDecimal multiply and reduce it replaced, and the payment amount check in both
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderPricingBenchmark {
+
+    @Param({"1", "10", "50", "200"})
+    private int cartSize;
+
+    private CustomerOrder order;
+
+    private BigDecimal[] prices;
+
+    private int[] quantities;
+
+    private BigDecimal paymentAmount;
+
+    private Money paymentMoney;
+
+    private BigDecimal orderAmount;
+
+    @Setup
+    public void setUp() {
+        order = BenchmarkData.order(cartSize);
+        order.setOrderAmount(OrderService.calculateOrderAmount(order.getOrderProducts()));
+        prices = new BigDecimal[cartSize];
+        quantities = new int[cartSize];
+        for (int i = 0; i < cartSize; i++) {
+            OrderProduct orderProduct = order.getOrderProducts().get(i);
+            prices[i] = orderProduct.getProduct().getPrice().toBigDecimal();
+            quantities[i] = orderProduct.getQuantity();
+        }
+        paymentAmount = order.getOrderAmount().toBigDecimal();
+        paymentMoney = order.getOrderAmount();
+        orderAmount = paymentMoney.toBigDecimal();
+    }
+
+    @Benchmark
+    public Money calculateOrderAmount() {
+        return OrderService.calculateOrderAmount(order.getOrderProducts());
+    }
+
+    //the previous pricing, with prices held as BigDecimal
+    @Benchmark
+    public BigDecimal calculateOrderAmountBigDecimal() {
+        BigDecimal amount = BigDecimal.ZERO;
+        for (int i = 0; i < prices.length; i++) {
+            amount = amount.add(prices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return amount;
+    }
+
+    //the check of PaymentService: the request amount converted and compared to the order's
+    @Benchmark
+    public boolean paymentAmountMatches() {
+        Money amount = Money.of(paymentAmount);
+        return !amount.isLessThan(paymentMoney) && !amount.isGreaterThan(paymentMoney);
+    }
+
+    @Benchmark
+    public boolean paymentAmountMatchesBigDecimal() {
+        return paymentAmount.compareTo(orderAmount) == 0;
+    }
+
+    @Benchmark
+    public OrderResponse mapToOrderResponse() {
+        return OrderService.mapToOrderResponse(order);
+    }
+}
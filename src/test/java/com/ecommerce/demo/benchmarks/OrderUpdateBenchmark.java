@@ -0,0 +1,133 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.dtos.OrderRequest;
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.dtos.ProductQuantity;
+import com.ecommerce.demo.entity.CustomerOrder;
+import com.ecommerce.demo.entity.OrderProduct;
+import com.ecommerce.demo.entity.Product;
+import com.ecommerce.demo.entity.User;
+import com.ecommerce.demo.repository.CustomerOrderRepository;
+import com.ecommerce.demo.services.OrderService;
+import com.ecommerce.demo.services.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PUT /orders/{id} on an order of {@code lines} lines, alternating between two requests that differ in 15% of the
+ * lines: 5% removed, 5% added and 5% with a new quantity. The diffing updateOrder against the previous
+ * clear-and-re-add update, on the H2 test profile with a simulated round trip of 200 µs per statement.
+ * The baseline refreshes the caches like updateOrder does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderUpdateBenchmark {
+
+    private static final long ROUND_TRIP_MICROS = 200;
+
+    @Param({"100", "1000"})
+    private int lines;
+
+    private ConfigurableApplicationContext context;
+
+    private OrderService orderService;
+
+    private ProductService productService;
+
+    private CustomerOrderRepository customerOrderRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private CacheManager cacheManager;
+
+    private Long orderId;
+
+    private OrderRequest[] requests;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startWithRoundTrip(ROUND_TRIP_MICROS);
+        orderService = context.getBean(OrderService.class);
+        productService = context.getBean(ProductService.class);
+        customerOrderRepository = context.getBean(CustomerOrderRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        cacheManager = context.getBean(CacheManager.class);
+
+        User user = BenchmarkApplication.createUser(context);
+        int changed = Math.max(1, lines / 20);
+        List<Long> productIds = BenchmarkApplication.createProducts(context, lines + changed);
+        List<ProductQuantity> first = new ArrayList<>(lines);
+        List<ProductQuantity> second = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            first.add(new ProductQuantity(productIds.get(i), 1));
+            if (i >= changed) {
+                second.add(new ProductQuantity(productIds.get(i), i < 2 * changed ? 2 : 1));
+            }
+        }
+        for (int i = lines; i < lines + changed; i++) {
+            second.add(new ProductQuantity(productIds.get(i), 1));
+        }
+        requests = new OrderRequest[]{new OrderRequest(user.getId(), first), new OrderRequest(user.getId(), second)};
+        orderId = orderService.placeOrder(requests[0]).getId();
+        next = 1;
+    }
+
+    private OrderRequest nextRequest() {
+        OrderRequest request = requests[next];
+        next ^= 1;
+        return request;
+    }
+
+    @Benchmark
+    public OrderResponse diffUpdate() {
+        return orderService.updateOrder(orderId, nextRequest());
+    }
+
+    //the update before diffing: a linear search per requested line, then the line list is replaced and merged
+    @Benchmark
+    public OrderResponse clearAndReaddBaseline() {
+        OrderRequest orderRequest = nextRequest();
+        OrderResponse response = transactionTemplate.execute(status -> {
+            CustomerOrder existingOrder = customerOrderRepository.findWithOrderProductsById(orderId).orElseThrow();
+            Map<Long, Product> products = productService.getProductsByIds(
+                    orderRequest.getProducts().stream().map(ProductQuantity::getProductId).toList());
+            List<OrderProduct> updatedOrderProducts = orderRequest.getProducts().stream().map(productQuantity -> {
+                Product product = products.get(productQuantity.getProductId());
+                OrderProduct orderProduct = existingOrder.getOrderProducts().stream()
+                        .filter(op -> op.getProduct().getId().equals(product.getId()))
+                        .findFirst()
+                        .orElse(new OrderProduct());
+                orderProduct.setOrder(existingOrder);
+                orderProduct.setProduct(product);
+                orderProduct.setQuantity(productQuantity.getQuantity());
+                return orderProduct;
+            }).toList();
+            existingOrder.getOrderProducts().clear();
+            existingOrder.getOrderProducts().addAll(updatedOrderProducts);
+            existingOrder.setOrderAmount(OrderService.calculateOrderAmount(existingOrder.getOrderProducts()));
+            return OrderService.mapToOrderResponse(customerOrderRepository.save(existingOrder));
+        });
+        cacheManager.getCache(CacheConfig.ORDERS_CACHE).put(orderId, response);
+        cacheManager.getCache(CacheConfig.ORDER_LIST_CACHE).clear();
+        return response;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
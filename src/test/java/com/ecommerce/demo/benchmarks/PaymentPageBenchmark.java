@@ -0,0 +1,135 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.entity.Payment;
+import com.ecommerce.demo.services.PaymentService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of GET /payments, read and written as JSON with the application's ObjectMapper: the PaymentResponse
+ * projection against the Payment entities the endpoint returned before, whose order, lines and products are
+ * loaded while Jackson walks them. The payload size of both is printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentPageBenchmark {
+
+    private static final int PAYMENTS = 10_000;
+    private static final int USERS = 100;
+    private static final int PRODUCTS = 50;
+    private static final int LINES_PER_ORDER = 3;
+    private static final int PAGE_SIZE = 50;
+
+    private ConfigurableApplicationContext context;
+
+    private PaymentService paymentService;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start();
+        paymentService = context.getBean(PaymentService.class);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        seed(context.getBean(JdbcTemplate.class));
+        System.out.printf("%nGET /payments page of %d: entities %,d bytes, projection %,d bytes%n",
+                PAGE_SIZE, entityPage(0L).length, projectionPage(0L).length);
+    }
+
+    //payment i pays order i of user i % USERS, each order has LINES_PER_ORDER lines
+    private void seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> users = new ArrayList<>(USERS);
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new Object[]{id, "user" + id, "user" + id + "@xyz.com"});
+        }
+        jdbcTemplate.batchUpdate("insert into user (id, user_name, email) values (?, ?, ?)", users);
+        List<Object[]> products = new ArrayList<>(PRODUCTS);
+        for (long id = 1; id <= PRODUCTS; id++) {
+            products.add(new Object[]{id, "Product " + id, new BigDecimal("19.99")});
+        }
+        jdbcTemplate.batchUpdate("insert into product (id, product_name, price) values (?, ?, ?)", products);
+
+        Timestamp createdOn = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0));
+        List<Object[]> orders = new ArrayList<>(PAYMENTS);
+        List<Object[]> lines = new ArrayList<>(PAYMENTS * LINES_PER_ORDER);
+        List<Object[]> payments = new ArrayList<>(PAYMENTS);
+        for (long id = 1; id <= PAYMENTS; id++) {
+            long userId = id % USERS + 1;
+            orders.add(new Object[]{id, userId, new BigDecimal("59.97"), "Success", createdOn, createdOn});
+            for (int line = 0; line < LINES_PER_ORDER; line++) {
+                lines.add(new Object[]{(id - 1) * LINES_PER_ORDER + line + 1, id, (id + line) % PRODUCTS + 1});
+            }
+            payments.add(new Object[]{id, id, userId, new BigDecimal("59.97"), "Success", createdOn, createdOn});
+        }
+        jdbcTemplate.batchUpdate("insert into customer_order "
+                + "(id, user_id, order_amount, order_status, created_on, updated_on, version) "
+                + "values (?, ?, ?, ?, ?, ?, 0)", orders);
+        jdbcTemplate.batchUpdate("insert into order_product (id, order_id, product_id, quantity) "
+                + "values (?, ?, ?, 1)", lines);
+        jdbcTemplate.batchUpdate("insert into payment "
+                + "(id, order_id, user_id, received_amount, payment_status, created_on, updated_on) "
+                + "values (?, ?, ?, ?, ?, ?, ?)", payments);
+    }
+
+    private static long randomAfterId() {
+        return ThreadLocalRandom.current().nextLong(PAYMENTS - PAGE_SIZE);
+    }
+
+    private byte[] projectionPage(long afterId) throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(paymentService.getAllPayments(afterId, PAGE_SIZE));
+    }
+
+    //the previous read path: entities serialized with the session open, as spring.jpa.open-in-view did
+    private byte[] entityPage(long afterId) {
+        return transactionTemplate.execute(status -> {
+            List<Payment> payments = entityManager
+                    .createQuery("from Payment p where p.id > :afterId order by p.id", Payment.class)
+                    .setParameter("afterId", afterId)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+            try {
+                return objectMapper.writeValueAsBytes(payments);
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Benchmark
+    public byte[] projection() throws JsonProcessingException {
+        return projectionPage(randomAfterId());
+    }
+
+    @Benchmark
+    public byte[] entities() {
+        return entityPage(randomAfterId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,73 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.dtos.OrderRequest;
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.dtos.ProductQuantity;
+import com.ecommerce.demo.entity.User;
+import com.ecommerce.demo.services.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * placeOrder through the real service, JPA and Hazelcast stack on the H2 test profile, per cart size.
+ * Prints the JDBC statements per order at the end of each trial: products resolve in one query whatever
+ * the cart size, and order lines are inserted in JDBC batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaceOrderBenchmark {
+
+    private static final int PRODUCT_COUNT = 200;
+
+    @Param({"1", "10", "50", "200"})
+    private int cartSize;
+
+    private ConfigurableApplicationContext context;
+
+    private OrderService orderService;
+
+    private Statistics statistics;
+
+    private OrderRequest orderRequest;
+
+    private long placedOrders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        User user = BenchmarkApplication.createUser(context);
+        List<Long> productIds = BenchmarkApplication.createProducts(context, PRODUCT_COUNT);
+
+        List<ProductQuantity> products = productIds.subList(0, cartSize).stream()
+                .map(productId -> new ProductQuantity(productId, 2))
+                .toList();
+        orderRequest = new OrderRequest(user.getId(), products);
+        statistics.clear();
+    }
+
+    @Benchmark
+    public OrderResponse placeOrder() {
+        placedOrders++;
+        return orderService.placeOrder(orderRequest);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%ncartSize=%d: %.1f statements per placeOrder%n",
+                cartSize, (double) statistics.getPrepareStatementCount() / placedOrders);
+        context.close();
+    }
+}
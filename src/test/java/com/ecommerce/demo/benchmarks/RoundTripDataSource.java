@@ -0,0 +1,52 @@
+package com.ecommerce.demo.benchmarks;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+//Adds a fixed network round trip to every statement execution, commit and rollback of an in-memory H2
+//database, which otherwise hides what batching saves against a real database server
+final class RoundTripDataSource {
+
+    private static final Set<String> ROUND_TRIPS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch", "commit", "rollback");
+
+    private RoundTripDataSource() {
+    }
+
+    static DataSource wrap(DataSource dataSource, long roundTripNanos) {
+        return proxy(DataSource.class, dataSource, roundTripNanos);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, long roundTripNanos) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (ROUND_TRIPS.contains(method.getName())) {
+                LockSupport.parkNanos(roundTripNanos);
+            }
+            Object result = invoke(method, target, args);
+            if (result instanceof Connection connection && method.getReturnType() == Connection.class) {
+                return proxy(Connection.class, connection, roundTripNanos);
+            }
+            if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return proxy((Class<Statement>) method.getReturnType(), statement, roundTripNanos);
+            }
+            return result;
+        };
+        return (T) Proxy.newProxyInstance(RoundTripDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.entity.Payment;
+import com.ecommerce.demo.services.OrderService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+//Jackson serialization of the REST payloads, configured like the Spring MVC ObjectMapper
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int cartSize;
+
+    private ObjectMapper objectMapper;
+
+    private OrderResponse orderResponse;
+
+    private byte[] orderResponseJson;
+
+    private Payment payment;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        orderResponse = OrderService.mapToOrderResponse(BenchmarkData.order(cartSize));
+        orderResponseJson = objectMapper.writeValueAsBytes(orderResponse);
+        payment = BenchmarkData.payment(cartSize);
+    }
+
+    @Benchmark
+    public byte[] serializeOrderResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orderResponse);
+    }
+
+    @Benchmark
+    public OrderResponse deserializeOrderResponse() throws Exception {
+        return objectMapper.readValue(orderResponseJson, OrderResponse.class);
+    }
+
+    //Payment is returned as an entity, so its order, lines and products are serialized with it
+    @Benchmark
+    public byte[] serializePayment() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(payment);
+    }
+}
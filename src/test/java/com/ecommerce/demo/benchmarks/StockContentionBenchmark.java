@@ -0,0 +1,79 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.services.StockService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eight threads reserving and releasing one unit of the same hot product: through StockService, where the
+ * entry processors queue on the product's partition thread, against a conditional update of
+ * product.stock_quantity per step, where every order waits for the row lock of the previous one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class StockContentionBenchmark {
+
+    private static final int STOCK = 1_000_000_000;
+
+    private static final String RESERVE_ROW = "update product set stock_quantity = stock_quantity - 1 "
+            + "where id = ? and stock_quantity >= 1";
+
+    private static final String RELEASE_ROW = "update product set stock_quantity = stock_quantity + 1 where id = ?";
+
+    private ConfigurableApplicationContext context;
+
+    private StockService stockService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Long hotProductId;
+
+    private Map<Long, Integer> oneUnit;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        stockService = context.getBean(StockService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        hotProductId = BenchmarkApplication.createProducts(context, 1).get(0);
+        jdbcTemplate.update("update product set stock_quantity = ? where id = ?", STOCK, hotProductId);
+        oneUnit = Map.of(hotProductId, 1);
+        //loads the stock level into the map before measuring
+        stockService.getStock(hotProductId);
+    }
+
+    @Benchmark
+    public void entryProcessorReserveRelease() {
+        stockService.reserve(oneUnit);
+        stockService.release(oneUnit);
+    }
+
+    //what a database-only reservation costs: one short transaction per step, each holding the row lock
+    @Benchmark
+    public void rowLockReserveRelease() {
+        Integer reserved = transactionTemplate.execute(status -> jdbcTemplate.update(RESERVE_ROW, hotProductId));
+        if (reserved == null || reserved == 0) {
+            throw new IllegalStateException("Out of stock");
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(RELEASE_ROW, hotProductId));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
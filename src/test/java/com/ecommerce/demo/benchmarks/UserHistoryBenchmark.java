@@ -0,0 +1,137 @@
+package com.ecommerce.demo.benchmarks;
+
+import com.ecommerce.demo.dtos.CursorPage;
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.dtos.PaymentResponse;
+import com.ecommerce.demo.entity.OrderStatus;
+import com.ecommerce.demo.entity.PaymentStatus;
+import com.ecommerce.demo.repository.UserRepository;
+import com.ecommerce.demo.services.OrderService;
+import com.ecommerce.demo.services.PaymentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /users/{id}/orders and /users/{id}/payments on the H2 test profile with {@code rows} orders and as many
+ * payments spread over 10,000 users, against loading the lazy User.orders collection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class UserHistoryBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int INSERT_BATCH = 5_000;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({"1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private OrderService orderService;
+
+    private PaymentService paymentService;
+
+    private UserRepository userRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+        paymentService = context.getBean(PaymentService.class);
+        userRepository = context.getBean(UserRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    //rows go in through JDBC, the entity path would take far longer than the measurement itself;
+    //order i belongs to user i % USERS and is created i minutes after START, so each user has orders over two years
+    private void seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> users = new ArrayList<>(USERS);
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new Object[]{id, "user" + id, "user" + id + "@xyz.com"});
+        }
+        jdbcTemplate.batchUpdate("insert into user (id, user_name, email) values (?, ?, ?)", users);
+
+        OrderStatus[] orderStatuses = OrderStatus.values();
+        List<Object[]> orders = new ArrayList<>(INSERT_BATCH);
+        List<Object[]> payments = new ArrayList<>(INSERT_BATCH);
+        for (long id = 1; id <= rows; id++) {
+            long userId = id % USERS + 1;
+            Timestamp createdOn = Timestamp.valueOf(START.plusMinutes(id));
+            OrderStatus orderStatus = orderStatuses[(int) (id % orderStatuses.length)];
+            orders.add(new Object[]{id, userId, new BigDecimal("59.97"), orderStatus.name(), createdOn, createdOn});
+            PaymentStatus paymentStatus = orderStatus == OrderStatus.Success ? PaymentStatus.Success : PaymentStatus.Failed;
+            payments.add(new Object[]{id, id, userId, new BigDecimal("59.97"), paymentStatus.name(), createdOn, createdOn});
+            if (orders.size() == INSERT_BATCH || id == rows) {
+                jdbcTemplate.batchUpdate("insert into customer_order "
+                        + "(id, user_id, order_amount, order_status, created_on, updated_on, version) "
+                        + "values (?, ?, ?, ?, ?, ?, 0)", orders);
+                jdbcTemplate.batchUpdate("insert into payment "
+                        + "(id, order_id, user_id, received_amount, payment_status, created_on, updated_on) "
+                        + "values (?, ?, ?, ?, ?, ?, ?)", payments);
+                orders.clear();
+                payments.clear();
+            }
+        }
+    }
+
+    private static long randomUser() {
+        return ThreadLocalRandom.current().nextLong(1, USERS + 1);
+    }
+
+    @Benchmark
+    public CursorPage<OrderResponse> userOrders() {
+        return orderService.getUserOrders(randomUser(), null, null, null, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<OrderResponse> userOrdersByStatus() {
+        return orderService.getUserOrders(randomUser(), OrderStatus.Success, null, null, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<OrderResponse> userOrdersInDateRange() {
+        LocalDateTime from = START.plusDays(ThreadLocalRandom.current().nextInt(600));
+        return orderService.getUserOrders(randomUser(), null, from, from.plusDays(30), null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<PaymentResponse> userPayments() {
+        return paymentService.getUserPayments(randomUser(), null, null, null, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<PaymentResponse> userPaymentsByStatus() {
+        return paymentService.getUserPayments(randomUser(), PaymentStatus.Failed, null, null, null, null, PAGE_SIZE);
+    }
+
+    //what clients had before: every order of the user through the lazy collection
+    @Benchmark
+    public Integer lazyUserOrdersBaseline() {
+        return transactionTemplate.execute(status ->
+                userRepository.findById(randomUser()).orElseThrow().getOrders().size());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.ecommerce.demo.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+
+public class DelayedEvictionCacheManagerTest {
+
+    private final DelayedEvictionCacheManager cacheManager =
+            new DelayedEvictionCacheManager(new ConcurrentMapCacheManager(), Duration.ofMillis(200));
+
+    @Test
+    public void testEvict_ValueFilledFromLaggingReplicaDroppedLater() throws Exception {
+        // Arrange
+        Cache cache = cacheManager.getCache(CacheConfig.ORDERS_CACHE);
+        cache.put(1L, "Pending");
+
+        // Act
+        //the write evicts, then a reader fills the cache from a replica that has not seen the write yet
+        cache.evict(1L);
+        cache.put(1L, "Pending");
+        Cache.ValueWrapper beforeDelay = cache.get(1L);
+        Thread.sleep(500);
+
+        // Assert
+        assertNotNull(beforeDelay);
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    public void testClear_PagesFilledFromLaggingReplicaDroppedLater() throws Exception {
+        // Arrange
+        Cache cache = cacheManager.getCache(CacheConfig.ORDER_LIST_CACHE);
+        cache.put("0:50", "page");
+
+        // Act
+        cache.clear();
+        cache.put("0:50", "page");
+        Thread.sleep(500);
+
+        // Assert
+        assertNull(cache.get("0:50"));
+    }
+}
@@ -0,0 +1,179 @@
+package com.ecommerce.demo.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.hazelcast.client.HazelcastClient;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.spi.properties.ClusterProperty;
+import com.hazelcast.spring.cache.HazelcastCacheManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Members built from the application's member and client configs, started in this JVM and joined over
+ * TCP-IP on the loopback interface. Each test uses its own cluster name and ports so it joins nothing else.
+ */
+public class HazelcastClusterTest {
+
+    private static final int MAX_MEMBERS = 3;
+
+    private static final int READS = 2000;
+
+    private final List<HazelcastInstance> instances = new ArrayList<>();
+
+    private String clusterName;
+
+    private int basePort;
+
+    @BeforeEach
+    public void setUp() {
+        clusterName = "cluster-test-" + UUID.randomUUID();
+        basePort = 20000 + new Random().nextInt(400) * 100;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        instances.forEach(HazelcastInstance::shutdown);
+    }
+
+    @Test
+    public void testOrdersNearCache_InvalidatedAcrossMembers() {
+        // Arrange
+        List<HazelcastInstance> members = startCluster(2);
+        Cache writer = ordersCache(members.get(0));
+        Cache reader = ordersCache(members.get(1));
+        writer.put(1L, "Pending");
+        //the first read fills the reader's near cache, the second is served from it
+        assertEquals("Pending", reader.get(1L, String.class));
+        assertEquals("Pending", reader.get(1L, String.class));
+
+        // Act
+        writer.put(1L, "Success");
+
+        // Assert
+        awaitEquals("Success", () -> reader.get(1L, String.class));
+        writer.evict(1L);
+        awaitEquals(null, () -> reader.get(1L, String.class));
+        assertTrue(members.get(1).getMap(CacheConfig.ORDERS_CACHE).getLocalMapStats().getNearCacheStats().getHits() > 0);
+    }
+
+    @Test
+    public void testHitRatio_StaysUpAsMembersAreAdded() {
+        for (int size = 1; size <= MAX_MEMBERS; size++) {
+            // Arrange
+            List<HazelcastInstance> clustered = startCluster(size);
+            List<HazelcastInstance> standalone = startStandaloneMembers(size);
+
+            // Act
+            int distinctOrders = 200;
+            double clusteredRatio = hitRatio(clustered, distinctOrders);
+            double standaloneRatio = hitRatio(standalone, distinctOrders);
+            System.out.printf("%d member(s): hit ratio %.1f%% clustered, %.1f%% standalone%n",
+                    size, 100 * clusteredRatio, 100 * standaloneRatio);
+
+            // Assert
+            //one miss per order whichever member serves the read; standalone members each miss every order once
+            assertEquals(1 - (double) distinctOrders / READS, clusteredRatio, 0.0001);
+            if (size > 1) {
+                assertTrue(standaloneRatio < clusteredRatio);
+            }
+
+            tearDown();
+            instances.clear();
+            setUp();
+        }
+    }
+
+    @Test
+    public void testClient_NearCachesOrdersAndSeesMemberUpdates() {
+        // Arrange
+        HazelcastInstance member = startCluster(1).get(0);
+        HazelcastInstance client = HazelcastClient.newHazelcastClient(new CacheConfig()
+                .clientConfig(clusterName, List.of("127.0.0.1:" + basePort), true));
+        instances.add(client);
+        Cache memberCache = ordersCache(member);
+        Cache clientCache = ordersCache(client);
+        memberCache.put(1L, "Pending");
+        assertEquals("Pending", clientCache.get(1L, String.class));
+        assertEquals("Pending", clientCache.get(1L, String.class));
+
+        // Act
+        memberCache.put(1L, "Success");
+
+        // Assert
+        assertFalse(CacheConfig.isMember(client));
+        awaitEquals("Success", () -> clientCache.get(1L, String.class));
+        assertTrue(client.getMap(CacheConfig.ORDERS_CACHE).getLocalMapStats().getNearCacheStats().getHits() > 0);
+    }
+
+    //READS reads of random orders, served round robin by the members; a miss loads the order and caches it
+    private double hitRatio(List<HazelcastInstance> members, int distinctOrders) {
+        List<Cache> caches = members.stream().map(this::ordersCache).toList();
+        Random random = new Random(42);
+        int hits = 0;
+        for (int i = 0; i < READS; i++) {
+            Cache cache = caches.get(i % caches.size());
+            long orderId = random.nextInt(distinctOrders);
+            if (cache.get(orderId) != null) {
+                hits++;
+            } else {
+                cache.put(orderId, "order " + orderId);
+            }
+        }
+        return (double) hits / READS;
+    }
+
+    //Each member lists the ones started before it, as a pod lists the seed members
+    private List<HazelcastInstance> startCluster(int size) {
+        List<HazelcastInstance> members = new ArrayList<>();
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            addresses.add("127.0.0.1:" + (basePort + i));
+            members.add(startMember(clusterName, List.copyOf(addresses), basePort + i));
+        }
+        assertEquals(size, members.get(0).getCluster().getMembers().size());
+        return members;
+    }
+
+    //What every pod was before: a member of its own
+    private List<HazelcastInstance> startStandaloneMembers(int size) {
+        List<HazelcastInstance> members = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            members.add(startMember(clusterName, List.of(), basePort + MAX_MEMBERS + i));
+        }
+        members.forEach(member -> assertEquals(1, member.getCluster().getMembers().size()));
+        return members;
+    }
+
+    private HazelcastInstance startMember(String clusterName, List<String> members, int port) {
+        Config config = new CacheConfig().memberConfig(clusterName, members, port,
+                        CacheConfig.DEFAULT_BACKUP_COUNT, CacheConfig.DEFAULT_BACKUP_COUNT, true)
+                .setInstanceName(clusterName + "-" + port)
+                .setProperty(ClusterProperty.WAIT_SECONDS_BEFORE_JOIN.getName(), "0");
+        config.getNetworkConfig().setPortAutoIncrement(false);
+        config.getNetworkConfig().getInterfaces().setEnabled(true).addInterface("127.0.0.1");
+        HazelcastInstance instance = Hazelcast.newHazelcastInstance(config);
+        instances.add(instance);
+        return instance;
+    }
+
+    private Cache ordersCache(HazelcastInstance instance) {
+        return new HazelcastCacheManager(instance).getCache(CacheConfig.ORDERS_CACHE);
+    }
+
+    //near-cache invalidations reach the other members asynchronously
+    private static void awaitEquals(Object expected, Supplier<Object> actual) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Objects.equals(expected, actual.get()) && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(expected, actual.get());
+    }
+}
@@ -0,0 +1,36 @@
+package com.ecommerce.demo.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+/**
+ * The startup self-check against the real mappings, with the batching settings of application.yml.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(JdbcBatchingValidator.class)
+public class JdbcBatchingValidatorTest {
+
+    @Autowired
+    private JdbcBatchingValidator jdbcBatchingValidator;
+
+    @Test
+    public void testFindings_ReportOnlyTheIdentityEntities() {
+        // Act
+        List<String> findings = jdbcBatchingValidator.findings();
+
+        // Assert
+        assertEquals(1, findings.size());
+        assertTrue(findings.get(0).startsWith(
+                "entities [OutboxEvent, Payment, Product, Transaction, User] use IDENTITY ids"), findings.get(0));
+    }
+}
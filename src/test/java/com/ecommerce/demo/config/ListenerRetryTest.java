@@ -0,0 +1,75 @@
+package com.ecommerce.demo.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The retry advice of the batch listener factories, applied the way the container applies it: around the call
+ * that hands a delivery to the listener.
+ */
+public class ListenerRetryTest {
+
+    //the shape of the container's listener invocation, the advice reads the delivery from the second argument
+    public interface ListenerInvoker {
+        void invokeListener(Channel channel, Object data);
+    }
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private final ListenerInvoker invoker = advised((channel, data) -> {
+        attempts.incrementAndGet();
+        throw new RuntimeException("database down");
+    });
+
+    @Test
+    public void testBatchDelivery_DeadLetteredOnceRetriesAreUsedUp() {
+        // Arrange
+        List<Message> batch = List.of(message("first"), message("second"), message("third"));
+
+        // Act
+        invoker.invokeListener(mock(Channel.class), batch);
+
+        // Assert
+        assertEquals(3, attempts.get());
+        batch.forEach(message -> verify(rabbitTemplate)
+                .send(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, message));
+        verifyNoMoreInteractions(rabbitTemplate);
+    }
+
+    @Test
+    public void testSingleDelivery_DeadLetteredOnceRetriesAreUsedUp() {
+        // Arrange
+        Message message = message("only");
+
+        // Act
+        invoker.invokeListener(mock(Channel.class), message);
+
+        // Assert
+        assertEquals(3, attempts.get());
+        verify(rabbitTemplate).send(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, message);
+    }
+
+    private ListenerInvoker advised(ListenerInvoker target) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addInterface(ListenerInvoker.class);
+        proxyFactory.addAdvice(new RabbitMQConfig().listenerRetryInterceptor(rabbitTemplate, 3, 1, 1));
+        return (ListenerInvoker) proxyFactory.getProxy();
+    }
+
+    private Message message(String body) {
+        return new Message(body.getBytes(StandardCharsets.UTF_8), new MessageProperties());
+    }
+}
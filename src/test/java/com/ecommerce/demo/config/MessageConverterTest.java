@@ -0,0 +1,114 @@
+package com.ecommerce.demo.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.dtos.PaymentEvent;
+import com.ecommerce.demo.entity.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MessageConverterTest {
+
+    private final RabbitMQConfig rabbitMQConfig = new RabbitMQConfig();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "smile", "cbor"})
+    public void testPaymentEvent_RoundTripsInEveryFormat(String format) {
+        // Arrange
+        MessageConverter converter = rabbitMQConfig.messageConverter(format);
+        PaymentEvent paymentEvent = paymentEvent();
+
+        // Act
+        Message message = converter.toMessage(paymentEvent, new MessageProperties());
+        PaymentEvent received = (PaymentEvent) converter.fromMessage(message);
+
+        // Assert
+        assertEquals(paymentEvent.getPaymentId(), received.getPaymentId());
+        assertEquals(paymentEvent.getOrderId(), received.getOrderId());
+        assertEquals(paymentEvent.getUserId(), received.getUserId());
+        assertEquals(0, paymentEvent.getAmount().compareTo(received.getAmount()));
+        assertEquals(paymentEvent.getPaidOn(), received.getPaidOn());
+        assertEquals(PaymentEvent.CURRENT_VERSION, received.getVersion());
+    }
+
+    @Test
+    public void testConsumerReadsEveryFormat() {
+        // Arrange
+        MessageConverter consumer = rabbitMQConfig.messageConverter("json");
+        Message smile = rabbitMQConfig.messageConverter("smile").toMessage(paymentEvent(), new MessageProperties());
+        Message cbor = rabbitMQConfig.messageConverter("cbor").toMessage(paymentEvent(), new MessageProperties());
+
+        // Act & Assert
+        assertEquals(RabbitMQConfig.SMILE_CONTENT_TYPE, smile.getMessageProperties().getContentType());
+        assertEquals(RabbitMQConfig.CBOR_CONTENT_TYPE, cbor.getMessageProperties().getContentType());
+        assertInstanceOf(PaymentEvent.class, consumer.fromMessage(smile));
+        assertInstanceOf(PaymentEvent.class, consumer.fromMessage(cbor));
+    }
+
+    @Test
+    public void testPaymentEvent_SmallerThanFullPaymentEntity() {
+        // Arrange
+        int fullPayment = new Jackson2JsonMessageConverter().toMessage(payment(), new MessageProperties()).getBody().length;
+        int json = rabbitMQConfig.messageConverter("json").toMessage(paymentEvent(), new MessageProperties()).getBody().length;
+        int smile = rabbitMQConfig.messageConverter("smile").toMessage(paymentEvent(), new MessageProperties()).getBody().length;
+        int cbor = rabbitMQConfig.messageConverter("cbor").toMessage(paymentEvent(), new MessageProperties()).getBody().length;
+
+        // Assert
+        assertTrue(json < fullPayment / 4, "json " + json + " vs payment " + fullPayment);
+        assertTrue(smile < json, "smile " + smile + " vs json " + json);
+        assertTrue(cbor < json, "cbor " + cbor + " vs json " + json);
+    }
+
+    @Test
+    public void testUnknownFormatRejected() {
+        assertThrows(IllegalArgumentException.class, () -> rabbitMQConfig.messageConverter("xml"));
+    }
+
+    private PaymentEvent paymentEvent() {
+        return PaymentEvent.builder()
+                .version(PaymentEvent.CURRENT_VERSION)
+                .eventId(1L)
+                .paymentId(42L)
+                .orderId(7L)
+                .userId(3L)
+                .amount(new BigDecimal("175.50"))
+                .paidOn(LocalDateTime.of(2024, 12, 1, 10, 15, 30))
+                .publishedOn(LocalDateTime.of(2024, 12, 1, 10, 15, 31))
+                .build();
+    }
+
+    //the payload published before PaymentEvent: the entity with its order, lines, products and user
+    private Payment payment() {
+        User user = User.builder().id(3L).userName("rahim").email("rahimxyz@gmail.com").phone("9809898908").build();
+        CustomerOrder order = CustomerOrder.builder()
+                .id(7L)
+                .user(user)
+                .orderAmount(Money.of(new BigDecimal("175.50")))
+                .orderStatus(OrderStatus.Success)
+                .createdOn(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .orderProducts(new ArrayList<>())
+                .build();
+        for (long i = 1; i <= 10; i++) {
+            Product product = Product.builder().id(i).productName("product " + i).price(Money.of(new BigDecimal("17.55"))).build();
+            order.getOrderProducts().add(OrderProduct.builder().id(i).order(order).product(product).quantity(1).build());
+        }
+        return Payment.builder()
+                .id(42L)
+                .order(order)
+                .user(user)
+                .receivedAmount(Money.of(new BigDecimal("175.50")))
+                .paymentStatus(PaymentStatus.Success)
+                .build();
+    }
+}
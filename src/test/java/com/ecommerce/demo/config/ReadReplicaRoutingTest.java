@@ -0,0 +1,162 @@
+package com.ecommerce.demo.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.dtos.UserResponse;
+import com.ecommerce.demo.entity.User;
+import com.ecommerce.demo.dtos.ProductResponse;
+import com.ecommerce.demo.services.ProductService;
+import com.ecommerce.demo.services.UserService;
+import com.hazelcast.core.HazelcastInstance;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Routing between two in-memory H2 databases standing in for the primary and a lagging replica: the replica
+ * gets the primary's schema but only the rows each test puts there.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,TRANSACTION;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.url=jdbc:h2:mem:routing-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,TRANSACTION;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.username=sa",
+        "spring.datasource.replica.driver-class-name=org.h2.Driver"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DataSourceConfig.class, UserService.class, ProductService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReadReplicaRoutingTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private ReadYourWritesFilter readYourWritesFilter;
+
+    @Autowired
+    private ProductService productService;
+
+    @MockitoBean
+    private HazelcastInstance hazelcastInstance;
+
+    private JdbcTemplate primary;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    public void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("drop all objects");
+        primary.queryForList("script nodata", String.class).forEach(replica::execute);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReadWriteRoutingDataSource.unpin();
+        primary.update("delete from user");
+        primary.update("delete from product");
+    }
+
+    @Test
+    public void testReadOnlyTransactions_UseTheReplica() {
+        // Arrange
+        userService.createUser(User.builder().userName("rahim").email("rahim@xyz.com").build());
+        replica.update("insert into user (id, user_name, email) values (100, 'karim', 'karim@xyz.com')");
+
+        // Act
+        List<String> read = userNames();
+
+        // Assert
+        assertEquals(List.of("karim"), read);
+        assertEquals(List.of("rahim"), primary.queryForList("select user_name from user", String.class));
+    }
+
+    @Test
+    public void testPinnedToPrimary_ReadsOwnWrites() {
+        // Arrange
+        userService.createUser(User.builder().userName("rahim").email("rahim@xyz.com").build());
+
+        // Act
+        ReadWriteRoutingDataSource.pinToPrimary();
+        List<String> pinned = userNames();
+        ReadWriteRoutingDataSource.unpin();
+        List<String> unpinned = userNames();
+
+        // Assert
+        assertEquals(List.of("rahim"), pinned);
+        assertEquals(List.of(), unpinned);
+    }
+
+    @Test
+    public void testFilter_PinsReadsAfterAWrite() throws Exception {
+        // Arrange
+        AtomicBoolean pinnedDuringRead = new AtomicBoolean();
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        readYourWritesFilter.doFilter(new MockHttpServletRequest("POST", "/orders"), writeResponse, (request, response) -> {
+        });
+        Cookie cookie = writeResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+
+        // Act
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/orders/1");
+        read.setCookies(cookie);
+        readYourWritesFilter.doFilter(read, new MockHttpServletResponse(), (request, response) ->
+                pinnedDuringRead.set(ReadWriteRoutingDataSource.isPinnedToPrimary()));
+
+        // Assert
+        assertNotNull(cookie);
+        assertEquals(5, cookie.getMaxAge());
+        assertTrue(pinnedDuringRead.get());
+        assertFalse(ReadWriteRoutingDataSource.isPinnedToPrimary());
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/orders/1");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, String.valueOf(System.currentTimeMillis() - 1)));
+        readYourWritesFilter.doFilter(expired, new MockHttpServletResponse(), (request, response) ->
+                pinnedDuringRead.set(ReadWriteRoutingDataSource.isPinnedToPrimary()));
+        assertFalse(pinnedDuringRead.get());
+    }
+
+    @Test
+    public void testCacheLoaders_ReadTheReplica() {
+        // Arrange
+        //a product the replica has not caught up with yet, the delayed eviction drops the page cached meanwhile
+        primary.update("insert into product (id, product_name, price) values (100, 'pen', 2.50)");
+
+        // Act
+        List<String> cached = productService.getAllProducts(0L, 50).getItems().stream()
+                .map(ProductResponse::getProductName)
+                .toList();
+
+        // Assert
+        assertEquals(List.of(), cached);
+    }
+
+    private List<String> userNames() {
+        return userService.getAllUsers(0L, 50).getItems().stream().map(UserResponse::getUserName).toList();
+    }
+}
@@ -0,0 +1,57 @@
+package com.ecommerce.demo.entity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+public class MoneyTest {
+
+    @Test
+    public void testOf_ExactInCents() {
+        // Act
+        Money money = Money.of(new BigDecimal("19.9"));
+
+        // Assert
+        assertEquals(1990, money.getMinorUnits());
+        assertEquals(new BigDecimal("19.90"), money.toBigDecimal());
+        assertEquals(Money.ofMinor(1990), Money.of(new BigDecimal("19.900")));
+    }
+
+    @Test
+    public void testOf_FractionOfACentNeedsARoundingMode() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("10.005")));
+        assertEquals(1000, Money.of(new BigDecimal("10.005"), RoundingMode.HALF_EVEN).getMinorUnits());
+        assertEquals(1001, Money.of(new BigDecimal("10.005"), RoundingMode.HALF_UP).getMinorUnits());
+    }
+
+    @Test
+    public void testArithmetic_ExactOrThrows() {
+        // Arrange
+        Money price = Money.of(new BigDecimal("0.10"));
+
+        // Act & Assert
+        assertEquals(Money.of(new BigDecimal("0.30")), price.plus(price).plus(price));
+        assertEquals(Money.ofMinor(-10), Money.ZERO.minus(price));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE / 2 + 1).times(2));
+        assertThrows(IllegalArgumentException.class, () -> price.plus(Money.ofMinor(10, Currency.getInstance("EUR"))));
+        assertTrue(price.isLessThan(Money.ofMinor(11)));
+        assertTrue(price.isGreaterThan(Money.ofMinor(9)));
+    }
+
+    @Test
+    public void testJson_PlainDecimalBothWays() throws Exception {
+        // Arrange
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        // Act & Assert
+        assertEquals("175.50", objectMapper.writeValueAsString(Money.ofMinor(17550)));
+        assertEquals(Money.ofMinor(17550), objectMapper.readValue("175.5", Money.class));
+        assertEquals(Money.ofMinor(17500), objectMapper.readValue("\"175\"", Money.class));
+    }
+}
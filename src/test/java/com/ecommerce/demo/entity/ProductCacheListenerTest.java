@@ -0,0 +1,57 @@
+package com.ecommerce.demo.entity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.config.CacheConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+public class ProductCacheListenerTest {
+
+    private final ProductCacheListener listener = new ProductCacheListener();
+
+    //the application's cache manager is transaction-aware the same way
+    private final CacheManager cacheManager = new TransactionAwareCacheManagerProxy(
+            new ConcurrentMapCacheManager(CacheConfig.PRODUCTS_CACHE, CacheConfig.PRODUCT_LIST_CACHE));
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(listener, "cacheManager", cacheManager);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testEvict_AppliedOnceTheChangeCommits() {
+        // Arrange
+        Cache products = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        Cache productPages = cacheManager.getCache(CacheConfig.PRODUCT_LIST_CACHE);
+        products.put(1L, "pen");
+        productPages.put("0:50", "page");
+
+        // Act
+        //@PostUpdate runs at flush, before the update is committed
+        TransactionSynchronizationManager.initSynchronization();
+        listener.evict(Product.builder().id(1L).build());
+        Cache.ValueWrapper beforeCommit = products.get(1L);
+        TransactionSynchronizationUtils.triggerAfterCommit();
+
+        // Assert
+        assertNotNull(beforeCommit);
+        assertNull(products.get(1L));
+        assertNull(productPages.get("0:50"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.demo.load;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+//Wraps the application cache manager to count @Cacheable lookups that were served from the cache
+public class CountingCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+
+    private final Map<String, CountingCache> caches = new ConcurrentHashMap<>();
+
+    public CountingCacheManager(CacheManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = delegate.getCache(name);
+        return cache == null ? null : caches.computeIfAbsent(name, key -> new CountingCache(cache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    //hits and lookups per cache name so far
+    public Map<String, long[]> snapshot() {
+        Map<String, long[]> snapshot = new TreeMap<>();
+        caches.forEach((name, cache) -> snapshot.put(name, new long[]{cache.hits.sum(), cache.lookups.sum()}));
+        return snapshot;
+    }
+
+    private static class CountingCache implements Cache {
+
+        private final Cache delegate;
+
+        private final LongAdder hits = new LongAdder();
+
+        private final LongAdder lookups = new LongAdder();
+
+        private CountingCache(Cache delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return delegate.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            ValueWrapper value = delegate.get(key);
+            lookups.increment();
+            if (value != null) {
+                hits.increment();
+            }
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return delegate.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return delegate.get(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            delegate.put(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            delegate.evict(key);
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ecommerce.demo.load;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Broker stand-in for the load harness: published messages are converted as usual, queued in memory and
+ * handed to a batch consumer from a single thread, the way the batch listener container would deliver them.
+ * Publisher confirms always succeed and the connection factory is never opened.
+ */
+public class InMemoryRabbitTemplate extends RabbitTemplate {
+
+    private final BlockingQueue<Message> queue = new LinkedBlockingQueue<>();
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final AtomicLong delivered = new AtomicLong();
+
+    private volatile Thread consumerThread;
+
+    public InMemoryRabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
+        super(connectionFactory);
+        setMessageConverter(messageConverter);
+    }
+
+    @Override
+    public <T> T invoke(OperationsCallback<T> action, com.rabbitmq.client.ConfirmCallback acks,
+                        com.rabbitmq.client.ConfirmCallback nacks) {
+        return action.doInRabbit(this);
+    }
+
+    @Override
+    public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+        queue.add(message);
+        published.incrementAndGet();
+    }
+
+    @Override
+    public void waitForConfirmsOrDie(long timeout) {
+        //every message is already queued
+    }
+
+    public void startConsumer(Consumer<List<Message>> listener, int batchSize, long receiveTimeoutMs) {
+        consumerThread = new Thread(() -> {
+            List<Message> batch = new ArrayList<>(batchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Message message = queue.poll(receiveTimeoutMs, TimeUnit.MILLISECONDS);
+                    if (message != null) {
+                        batch.add(message);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                    if (!batch.isEmpty() && (batch.size() == batchSize || message == null || queue.isEmpty())) {
+                        listener.accept(batch);
+                        delivered.addAndGet(batch.size());
+                        batch = new ArrayList<>(batchSize);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "in-memory-amqp-consumer");
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    public void stopConsumer() {
+        if (consumerThread != null) {
+            consumerThread.interrupt();
+        }
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+}
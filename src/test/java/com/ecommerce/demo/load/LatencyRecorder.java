@@ -0,0 +1,66 @@
+package com.ecommerce.demo.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Per endpoint latencies and error counts collected by the load harness worker threads
+public class LatencyRecorder {
+
+    private final Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> clientErrors = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> serverErrors = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, long nanos, int status) {
+        List<Long> samples = latencies.computeIfAbsent(endpoint, key -> new ArrayList<>());
+        synchronized (samples) {
+            samples.add(nanos);
+        }
+        if (status >= 500) {
+            serverErrors.computeIfAbsent(endpoint, key -> new AtomicLong()).incrementAndGet();
+        } else if (status >= 400) {
+            clientErrors.computeIfAbsent(endpoint, key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public long totalRequests() {
+        return latencies.values().stream().mapToLong(List::size).sum();
+    }
+
+    public long totalServerErrors() {
+        return serverErrors.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public String report(double elapsedSeconds) {
+        StringBuilder report = new StringBuilder(String.format("%-22s %8s %9s %9s %9s %9s %6s %6s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "4xx", "5xx"));
+        new TreeMap<>(latencies).forEach((endpoint, samples) -> {
+            long[] sorted;
+            synchronized (samples) {
+                sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+            }
+            report.append(String.format("%-22s %8d %9.1f %9.2f %9.2f %9.2f %6d %6d%n",
+                    endpoint, sorted.length, sorted.length / elapsedSeconds,
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    count(clientErrors, endpoint), count(serverErrors, endpoint)));
+        });
+        report.append(String.format("%-22s %8d %9.1f%n", "total", totalRequests(), totalRequests() / elapsedSeconds));
+        return report.toString();
+    }
+
+    //nearest-rank percentile, in milliseconds
+    private static double percentile(long[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)] / 1_000_000.0;
+    }
+
+    private static long count(Map<String, AtomicLong> counters, String endpoint) {
+        AtomicLong counter = counters.get(endpoint);
+        return counter == null ? 0 : counter.get();
+    }
+}
@@ -0,0 +1,344 @@
+package com.ecommerce.demo.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.dtos.OrderRequest;
+import com.ecommerce.demo.dtos.PaymentRequest;
+import com.ecommerce.demo.dtos.ProductQuantity;
+import com.ecommerce.demo.entity.Money;
+import com.ecommerce.demo.entity.PaymentStatus;
+import com.ecommerce.demo.entity.Product;
+import com.ecommerce.demo.entity.User;
+import com.ecommerce.demo.repository.PaymentRepository;
+import com.ecommerce.demo.repository.TransactionRepository;
+import com.ecommerce.demo.services.ProductService;
+import com.ecommerce.demo.services.TransactionService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hazelcast.config.Config;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Drives a mix of user/product creation, placeOrder, getOrder, updateOrder and makePayment through the real
+ * controllers over HTTP, with H2 in MySQL mode, a local Hazelcast member and an in-memory broker, then prints
+ * throughput, p50/p95/p99 per endpoint, Hibernate statement counts and cache hit ratios.
+ * Runs with {@code mvn -Pload-test test}; size it with -Dload.threads and -Dload.requests-per-thread.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "outbox.relay.interval-ms=50",
+        //the harness measures the endpoints themselves, 429s from admission control would skew it
+        "admission.enabled=false",
+        "logging.level.root=WARN"
+})
+@ActiveProfiles("test")
+public class LoadHarnessTest {
+
+    private static final int SEED_USERS = 20;
+    private static final int SEED_PRODUCTS = 200;
+    private static final int MAX_CART_SIZE = 10;
+
+    @Value("${load.threads:8}")
+    private int threads;
+
+    @Value("${load.requests-per-thread:250}")
+    private int requestsPerThread;
+
+    @Value("${load.warmup-requests-per-thread:50}")
+    private int warmupRequestsPerThread;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private InMemoryRabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CountingCacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> userIds = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<Long> productIds = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<Long> orderIds = Collections.synchronizedList(new ArrayList<>());
+
+    @TestConfiguration
+    static class LoadHarnessConfig {
+
+        @Bean
+        public InMemoryRabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
+            return new InMemoryRabbitTemplate(connectionFactory, messageConverter);
+        }
+
+        @Bean
+        public static BeanPostProcessor countingCacheManager() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof CacheManager cacheManager && !(bean instanceof CountingCacheManager)
+                            ? new CountingCacheManager(cacheManager) : bean;
+                }
+            };
+        }
+
+        //keep the member to itself, a harness on a shared CI host must not join another cluster
+        @Bean
+        public static BeanPostProcessor standaloneHazelcastMember() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                    if (bean instanceof Config config) {
+                        config.setClusterName("load-harness-" + UUID.randomUUID());
+                        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        rabbitTemplate.startConsumer(transactionService::consumePayments, 100, 200);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        rabbitTemplate.stopConsumer();
+    }
+
+    @Test
+    public void testMixedWorkload() throws Exception {
+        // Arrange
+        for (int i = 0; i < SEED_USERS; i++) {
+            createUser(new LatencyRecorder(), new Random(i));
+        }
+        for (int i = 0; i < SEED_PRODUCTS; i++) {
+            createProduct(new LatencyRecorder(), new Random(i));
+        }
+        runWorkers(warmupRequestsPerThread, new LatencyRecorder());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Map<String, long[]> cacheStatsBefore = cacheManager.snapshot();
+        long productHitsBefore = productService.getCacheHits();
+        long productMissesBefore = productService.getCacheMisses();
+
+        // Act
+        LatencyRecorder recorder = new LatencyRecorder();
+        long start = System.nanoTime();
+        runWorkers(requestsPerThread, recorder);
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        StringBuilder report = new StringBuilder(String.format("%nLoad harness: %d threads x %d requests in %.1f s%n",
+                threads, requestsPerThread, elapsedSeconds));
+        report.append(recorder.report(elapsedSeconds));
+        report.append(String.format("%nHibernate statements: %d (%.2f per request), queries: %d, entity inserts: %d%n",
+                statistics.getPrepareStatementCount(),
+                (double) statistics.getPrepareStatementCount() / recorder.totalRequests(),
+                statistics.getQueryExecutionCount(),
+                statistics.getEntityInsertCount()));
+        report.append(String.format("%n%s: %s%n", "products-cache (read-through)", ratio(
+                productService.getCacheHits() - productHitsBefore,
+                productService.getCacheHits() - productHitsBefore + productService.getCacheMisses() - productMissesBefore)));
+        cacheManager.snapshot().forEach((cache, after) -> {
+            long[] before = cacheStatsBefore.getOrDefault(cache, new long[2]);
+            report.append(String.format("%s: %s%n", cache, ratio(after[0] - before[0], after[1] - before[1])));
+        });
+
+        long successfulPayments = paymentRepository.findAll().stream()
+                .filter(payment -> payment.getPaymentStatus() == PaymentStatus.Success)
+                .count();
+        awaitTransactions(successfulPayments);
+        report.append(String.format("%nAMQP stand-in: %d published, %d consumed, %d transactions recorded%n",
+                rabbitTemplate.getPublished(), rabbitTemplate.getDelivered(), transactionRepository.count()));
+
+        System.out.println(report);
+        Files.writeString(Path.of("target", "load-report.txt"), report);
+
+        // Assert
+        assertEquals(0, recorder.totalServerErrors(), report.toString());
+        assertEquals(successfulPayments, transactionRepository.count(), report.toString());
+    }
+
+    private void runWorkers(int requests, LatencyRecorder recorder) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long seed = t * 31L + requests;
+                workers.add(executor.submit(() -> runWorker(requests, recorder, new Random(seed))));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    //each worker pays and updates only the orders it placed, so workers never race on the same order
+    private void runWorker(int requests, LatencyRecorder recorder, Random random) {
+        Map<Long, BigDecimal> pendingOrders = new LinkedHashMap<>();
+        for (int i = 0; i < requests; i++) {
+            int pick = random.nextInt(100);
+            if (pick < 5) {
+                createUser(recorder, random);
+            } else if (pick < 10) {
+                createProduct(recorder, random);
+            } else if (pick < 35 && !orderIds.isEmpty()) {
+                getOrder(recorder, random);
+            } else if (pick < 45 && !pendingOrders.isEmpty()) {
+                updateOrder(recorder, random, pendingOrders);
+            } else if (pick < 65 && !pendingOrders.isEmpty()) {
+                makePayment(recorder, random, pendingOrders);
+            } else {
+                placeOrder(recorder, random, pendingOrders);
+            }
+        }
+    }
+
+    private void createUser(LatencyRecorder recorder, Random random) {
+        User user = User.builder().userName("user" + random.nextInt(1_000_000)).email("user@xyz.com").build();
+        JsonNode created = call(recorder, "POST /users", HttpMethod.POST, "/users", user);
+        if (created != null) {
+            userIds.add(created.get("id").asLong());
+        }
+    }
+
+    private void createProduct(LatencyRecorder recorder, Random random) {
+        Product product = Product.builder()
+                .productName("product" + random.nextInt(1_000_000))
+                .price(Money.of(BigDecimal.valueOf(100 + random.nextInt(10_000), 2)))
+                .build();
+        JsonNode created = call(recorder, "POST /products", HttpMethod.POST, "/products", product);
+        if (created != null) {
+            productIds.add(created.get("id").asLong());
+        }
+    }
+
+    private void placeOrder(LatencyRecorder recorder, Random random, Map<Long, BigDecimal> pendingOrders) {
+        JsonNode order = call(recorder, "POST /orders", HttpMethod.POST, "/orders", orderRequest(random));
+        if (order != null) {
+            orderIds.add(order.get("id").asLong());
+            pendingOrders.put(order.get("id").asLong(), order.get("orderAmount").decimalValue());
+        }
+    }
+
+    private void getOrder(LatencyRecorder recorder, Random random) {
+        Long orderId;
+        synchronized (orderIds) {
+            orderId = orderIds.get(random.nextInt(orderIds.size()));
+        }
+        call(recorder, "GET /orders/{id}", HttpMethod.GET, "/orders/" + orderId, null);
+    }
+
+    private void updateOrder(LatencyRecorder recorder, Random random, Map<Long, BigDecimal> pendingOrders) {
+        Long orderId = pendingOrders.keySet().iterator().next();
+        JsonNode order = call(recorder, "PUT /orders/{id}", HttpMethod.PUT, "/orders/" + orderId, orderRequest(random));
+        if (order != null) {
+            pendingOrders.put(orderId, order.get("orderAmount").decimalValue());
+        }
+    }
+
+    private void makePayment(LatencyRecorder recorder, Random random, Map<Long, BigDecimal> pendingOrders) {
+        Long orderId = pendingOrders.keySet().iterator().next();
+        BigDecimal amount = pendingOrders.remove(orderId);
+        PaymentRequest paymentRequest = new PaymentRequest(orderId, randomUserId(random), amount, "load-" + orderId);
+        call(recorder, "POST /payments", HttpMethod.POST, "/payments", paymentRequest);
+    }
+
+    private OrderRequest orderRequest(Random random) {
+        int cartSize = 1 + random.nextInt(MAX_CART_SIZE);
+        Set<Long> cartProductIds = new LinkedHashSet<>();
+        synchronized (productIds) {
+            while (cartProductIds.size() < cartSize) {
+                cartProductIds.add(productIds.get(random.nextInt(productIds.size())));
+            }
+        }
+        List<ProductQuantity> products = cartProductIds.stream()
+                .map(productId -> new ProductQuantity(productId, 1 + random.nextInt(3)))
+                .toList();
+        return new OrderRequest(randomUserId(random), products);
+    }
+
+    private Long randomUserId(Random random) {
+        synchronized (userIds) {
+            return userIds.get(random.nextInt(userIds.size()));
+        }
+    }
+
+    private JsonNode call(LatencyRecorder recorder, String endpoint, HttpMethod method, String path, Object body) {
+        long start = System.nanoTime();
+        //read as text, error responses are plain strings
+        ResponseEntity<String> response = restTemplate.exchange(path, method, new HttpEntity<>(body), String.class);
+        recorder.record(endpoint, System.nanoTime() - start, response.getStatusCode().value());
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(response.getBody());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unreadable response from " + endpoint, e);
+        }
+    }
+
+    private static String ratio(long hits, long lookups) {
+        return String.format("%d hits / %d lookups (%.1f%%)", hits, lookups, lookups == 0 ? 0 : 100.0 * hits / lookups);
+    }
+
+    //the outbox relay and the stand-in consumer run on their own threads, give them time to catch up
+    private void awaitTransactions(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (transactionRepository.count() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.config.MetricsConfig;
+import com.ecommerce.demo.dtos.TokenBucket;
+import com.ecommerce.demo.exception.GlobalExceptionHandler;
+import com.ecommerce.demo.exception.TooManyRequestsException;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Token buckets on a standalone Hazelcast member with the application's map settings.
+ */
+public class AdmissionControlServiceTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    private final AdmissionControlService admissionControlService = new AdmissionControlService();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeAll
+    public static void startMember() {
+        Config config = new CacheConfig().configure()
+                .setInstanceName("admission-test-" + UUID.randomUUID())
+                .setClusterName("admission-test-" + UUID.randomUUID());
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        hazelcastInstance = Hazelcast.newHazelcastInstance(config);
+    }
+
+    @AfterAll
+    public static void stopMember() {
+        hazelcastInstance.shutdown();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        hazelcastInstance.getMap(CacheConfig.RATE_LIMIT_MAP).clear();
+        configure(admissionControlService, hazelcastInstance, 3, 2, 100, 1000);
+    }
+
+    @Test
+    public void testAdmit_UserOverCapacityRejectedWithRetryAfter() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            admissionControlService.admit("orders", 1L);
+        }
+
+        // Act
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> admissionControlService.admit("orders", 1L));
+
+        // Assert
+        //one token at 2 per second
+        assertTrue(e.getRetryAfterMillis() > 0 && e.getRetryAfterMillis() <= 500, "retry after " + e.getRetryAfterMillis());
+        assertEquals(1, e.getRetryAfterSeconds());
+        //other users have their own bucket
+        assertDoesNotThrow(() -> admissionControlService.admit("orders", 2L));
+        assertEquals(4, count("orders", "admitted"));
+        assertEquals(1, count("orders", "user-limited"));
+    }
+
+    @Test
+    public void testAdmit_GlobalBucketCapsAllUsersAndGivesUserTokensBack() {
+        // Arrange
+        configure(admissionControlService, hazelcastInstance, 3, 2, 2, 1);
+        admissionControlService.admit("payments", 1L);
+        admissionControlService.admit("payments", 2L);
+
+        // Act
+        assertThrows(TooManyRequestsException.class, () -> admissionControlService.admit("payments", 3L));
+
+        // Assert
+        assertEquals(1, count("payments", "global-limited"));
+        assertEquals(3, bucket("user:3").getTokens(), 0.01);
+    }
+
+    @Test
+    public void testAdmit_BatchRejectedAsAWhole() {
+        // Arrange
+        admissionControlService.admit("orders", 2L);
+        admissionControlService.admit("orders", 2L);
+
+        // Act
+        //user 2 has one token left of the two the batch needs
+        assertThrows(TooManyRequestsException.class,
+                () -> admissionControlService.admit("orders-batch", Map.of(1L, 2, 2L, 2)));
+
+        // Assert
+        assertEquals(3, bucket("user:1").getTokens(), 0.01);
+        assertDoesNotThrow(() -> admissionControlService.admit("orders-batch", Map.of(1L, 3)));
+    }
+
+    @Test
+    public void testAdmit_BucketRefills() throws InterruptedException {
+        // Arrange
+        configure(admissionControlService, hazelcastInstance, 1, 20, 100, 1000);
+        admissionControlService.admit("orders", 1L);
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> admissionControlService.admit("orders", 1L));
+
+        // Act
+        Thread.sleep(e.getRetryAfterMillis() + 20);
+
+        // Assert
+        assertDoesNotThrow(() -> admissionControlService.admit("orders", 1L));
+    }
+
+    @Test
+    public void testAdmit_FailsOpenWhenTheMapIsUnavailable() {
+        // Arrange
+        HazelcastInstance stopped = mock(HazelcastInstance.class);
+        when(stopped.getMap(CacheConfig.RATE_LIMIT_MAP)).thenThrow(new HazelcastInstanceNotActiveException());
+        AdmissionControlService unavailable = new AdmissionControlService();
+        configure(unavailable, stopped, 1, 1, 1, 1);
+
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertDoesNotThrow(() -> unavailable.admit("orders", 1L));
+        }
+        assertEquals(3, count("orders", "failed-open"));
+    }
+
+    @Test
+    public void testHandler_429WithRetryAfterInWholeSeconds() {
+        // Act
+        ResponseEntity<String> response = new GlobalExceptionHandler()
+                .handleTooManyRequestsException(new TooManyRequestsException("Too many requests for this user", 1500), null);
+
+        // Assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Too many requests for this user", response.getBody());
+    }
+
+    private void configure(AdmissionControlService service, HazelcastInstance instance, int userCapacity,
+                           double userRefillPerSecond, int globalCapacity, double globalRefillPerSecond) {
+        ReflectionTestUtils.setField(service, "hazelcastInstance", instance);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "userCapacity", userCapacity);
+        ReflectionTestUtils.setField(service, "userRefillPerSecond", userRefillPerSecond);
+        ReflectionTestUtils.setField(service, "globalCapacity", globalCapacity);
+        ReflectionTestUtils.setField(service, "globalRefillPerSecond", globalRefillPerSecond);
+        ReflectionTestUtils.setField(service, "timeoutMs", 1000L);
+    }
+
+    private TokenBucket bucket(String key) {
+        return hazelcastInstance.<String, TokenBucket>getMap(CacheConfig.RATE_LIMIT_MAP).get(key);
+    }
+
+    private double count(String endpoint, String result) {
+        return meterRegistry.counter(MetricsConfig.ADMISSION_REQUESTS_COUNTER, "endpoint", endpoint, "result", result).count();
+    }
+}
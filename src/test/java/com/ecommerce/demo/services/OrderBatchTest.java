@@ -0,0 +1,171 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+import com.ecommerce.demo.dtos.BatchOrderResult;
+import com.ecommerce.demo.dtos.OrderRequest;
+import com.ecommerce.demo.dtos.ProductQuantity;
+import com.ecommerce.demo.entity.*;
+import com.ecommerce.demo.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Places batches of orders through OrderService.placeOrders and checks the JDBC batching with Hibernate statistics.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderService.class, UserService.class})
+public class OrderBatchTest {
+
+    private static final int ORDERS = 200;
+    private static final int LINES_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private StockService stockService;
+
+    private User user;
+    private List<Product> products;
+
+    @BeforeEach
+    public void setUp() {
+        user = entityManager.persist(User.builder().userName("rahim").email("rahim@xyz.com").build());
+        products = new ArrayList<>();
+        for (int i = 1; i <= LINES_PER_ORDER; i++) {
+            products.add(entityManager.persist(Product.builder().productName("product " + i).price(Money.of(BigDecimal.valueOf(i))).build()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        when(productService.findProductsByIds(anyCollection())).thenAnswer(invocation ->
+                productRepository.findAllById(invocation.<Collection<Long>>getArgument(0)).stream()
+                        .collect(Collectors.toMap(Product::getId, Function.identity())));
+    }
+
+    @Test
+    public void testPlaceOrders_InsertsOrdersAndLinesInJdbcBatches() {
+        // Arrange
+        List<OrderRequest> orderRequests = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orderRequests.add(orderRequest(user.getId(), products.stream().map(Product::getId).toList()));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        List<BatchOrderResult> results = orderService.placeOrders(orderRequests);
+        entityManager.flush();
+
+        // Assert
+        assertEquals(ORDERS, results.size());
+        assertTrue(results.stream().allMatch(BatchOrderResult::isSuccess));
+        assertEquals(ORDERS, results.stream().map(BatchOrderResult::getOrderId).distinct().count());
+        assertEquals(0, new BigDecimal("12").compareTo(results.get(0).getOrderAmount()));
+        assertEquals(ORDERS + ORDERS * LINES_PER_ORDER, statistics.getEntityInsertCount());
+        //800 rows in batches of 50, plus the user lookup and the pooled sequence calls
+        assertTrue(statistics.getPrepareStatementCount() < 40,
+                "statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testPlaceOrders_ReportsFailuresPerOrder() {
+        // Arrange
+        Long productId = products.get(0).getId();
+        List<OrderRequest> orderRequests = List.of(
+                orderRequest(user.getId(), List.of(productId)),
+                orderRequest(999L, List.of(productId)),
+                orderRequest(user.getId(), List.of(productId, 998L, 997L)),
+                new OrderRequest(user.getId(), List.of()),
+                new OrderRequest(user.getId(), List.of(new ProductQuantity(productId, 0))));
+
+        // Act
+        List<BatchOrderResult> results = orderService.placeOrders(orderRequests);
+        entityManager.flush();
+
+        // Assert
+        assertTrue(results.get(0).isSuccess());
+        assertNotNull(entityManager.find(CustomerOrder.class, results.get(0).getOrderId()));
+        assertEquals("User not found with id 999", results.get(1).getError());
+        assertEquals("Products not found with ids [997, 998]", results.get(2).getError());
+        assertEquals("Order has no products", results.get(3).getError());
+        assertEquals("Quantity must be positive for product " + productId, results.get(4).getError());
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BatchOrderResult::getIndex).toList());
+        assertTrue(results.stream().skip(1).noneMatch(result -> result.isSuccess() || result.getOrderId() != null));
+    }
+
+    @Test
+    public void testPlaceIntakeOrders_RedeliveredTrackingIdNotPlacedTwice() {
+        // Arrange
+        //t-1 was placed, but its message was redelivered before the intake status was written
+        OrderRequest orderRequest = orderRequest(user.getId(), List.of(products.get(0).getId()));
+        BatchOrderResult first = orderService.placeIntakeOrders(List.of(orderRequest), List.of("t-1")).get(0);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<BatchOrderResult> results = orderService.placeIntakeOrders(List.of(orderRequest, orderRequest), List.of("t-1", "t-2"));
+        entityManager.flush();
+
+        // Assert
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(first.getOrderId(), results.get(0).getOrderId());
+        assertEquals(0, first.getOrderAmount().compareTo(results.get(0).getOrderAmount()));
+        assertTrue(results.get(1).isSuccess());
+        assertNotEquals(first.getOrderId(), results.get(1).getOrderId());
+        assertEquals(2L, entityManager.getEntityManager()
+                .createQuery("select count(o) from CustomerOrder o", Long.class).getSingleResult());
+    }
+
+    @Test
+    public void testPlaceOrders_RejectsOversizedBatch() {
+        // Arrange
+        List<OrderRequest> orderRequests = new ArrayList<>();
+        for (int i = 0; i <= OrderService.MAX_BATCH_SIZE; i++) {
+            orderRequests.add(orderRequest(user.getId(), List.of(products.get(0).getId())));
+        }
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> orderService.placeOrders(orderRequests));
+        assertEquals("A batch can contain at most 1000 orders", exception.getMessage());
+    }
+
+    private OrderRequest orderRequest(Long userId, List<Long> productIds) {
+        return new OrderRequest(userId, productIds.stream().map(productId -> new ProductQuantity(productId, 2)).toList());
+    }
+}
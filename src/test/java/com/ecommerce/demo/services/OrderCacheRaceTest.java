@@ -0,0 +1,118 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.config.DelayedEvictionCacheManager;
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.entity.*;
+import com.ecommerce.demo.repository.CustomerOrderRepository;
+import com.ecommerce.demo.repository.OrderProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A reader that loads an order before a status change commits and caches it after the change evicted the entry,
+ * behind the caching proxies and the cache manager setup of the application.
+ */
+@SpringJUnitConfig
+public class OrderCacheRaceTest {
+
+    @Configuration
+    @EnableCaching
+    @Import({OrderService.class, SimpleMeterRegistry.class})
+    static class TestConfig {
+
+        @Bean
+        public CacheManager cacheManager() {
+            return new TransactionAwareCacheManagerProxy(new DelayedEvictionCacheManager(
+                    new ConcurrentMapCacheManager(CacheConfig.ORDERS_CACHE, CacheConfig.ORDER_LIST_CACHE),
+                    Duration.ofMillis(200)));
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockitoBean
+    private CustomerOrderRepository customerOrderRepository;
+
+    @MockitoBean
+    private OrderProductRepository orderProductRepository;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private StockService stockService;
+
+    @Test
+    public void testUpdateOrderStatus_OldValuePutBackByRacingReaderIsDropped() throws Exception {
+        // Arrange
+        CustomerOrder order = CustomerOrder.builder()
+                .id(1L)
+                .user(User.builder().id(1L).build())
+                .orderAmount(Money.of(new BigDecimal("10.00")))
+                .orderStatus(OrderStatus.Pending)
+                .orderProducts(new ArrayList<>())
+                .build();
+        CountDownLatch readerLoaded = new CountDownLatch(1);
+        CountDownLatch writeCommitted = new CountDownLatch(1);
+        //the first read sees the order before the write and is slowed down until the write has evicted
+        when(customerOrderRepository.findOrderResponseById(1L))
+                .thenAnswer(invocation -> {
+                    OrderResponse header = header(order);
+                    readerLoaded.countDown();
+                    assertTrue(writeCommitted.await(5, TimeUnit.SECONDS));
+                    return Optional.of(header);
+                })
+                .thenAnswer(invocation -> Optional.of(header(order)));
+        when(orderProductRepository.findLinesByOrderIds(anyCollection())).thenReturn(List.of());
+
+        // Act
+        CompletableFuture<OrderResponse> reader = CompletableFuture.supplyAsync(() -> orderService.getOrderResponseById(1L));
+        assertTrue(readerLoaded.await(5, TimeUnit.SECONDS));
+        orderService.updateOrderStatus(order, OrderStatus.Success);
+        writeCommitted.countDown();
+        reader.get(5, TimeUnit.SECONDS);
+        OrderResponse putBack = cacheManager.getCache(CacheConfig.ORDERS_CACHE).get(1L, OrderResponse.class);
+        Thread.sleep(500);
+
+        // Assert
+        assertEquals(OrderStatus.Pending, putBack.getOrderStatus());
+        assertNull(cacheManager.getCache(CacheConfig.ORDERS_CACHE).get(1L));
+        assertEquals(OrderStatus.Success, orderService.getOrderResponseById(1L).getOrderStatus());
+    }
+
+    private OrderResponse header(CustomerOrder order) {
+        return new OrderResponse(order.getId(), order.getUser().getId(), order.getOrderAmount(),
+                order.getOrderStatus(), order.getCreatedOn(), order.getUpdatedOn());
+    }
+}
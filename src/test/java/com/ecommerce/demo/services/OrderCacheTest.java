@@ -0,0 +1,219 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.dtos.OrderLineView;
+import com.ecommerce.demo.dtos.OrderRequest;
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.dtos.PaymentRequest;
+import com.ecommerce.demo.dtos.ProductQuantity;
+import com.ecommerce.demo.entity.*;
+import com.ecommerce.demo.repository.CustomerOrderRepository;
+import com.ecommerce.demo.repository.OrderProductRepository;
+import com.ecommerce.demo.repository.OutboxEventRepository;
+import com.ecommerce.demo.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Runs OrderService and PaymentService behind the real caching proxies, on top of an
+ * in-memory stand-in for the repositories, to check that every order mutation
+ * invalidates both the per-id and the list regions.
+ */
+@SpringJUnitConfig
+public class OrderCacheTest {
+
+    @Configuration
+    @EnableCaching
+    @Import({OrderService.class, PaymentService.class, SimpleMeterRegistry.class})
+    static class TestConfig {
+
+        @Bean
+        public CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheConfig.ORDERS_CACHE, CacheConfig.ORDER_LIST_CACHE);
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockitoBean
+    private CustomerOrderRepository customerOrderRepository;
+
+    @MockitoBean
+    private OrderProductRepository orderProductRepository;
+
+    @MockitoBean
+    private PaymentRepository paymentRepository;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private OutboxEventRepository outboxEventRepository;
+
+    @MockitoBean
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private StockService stockService;
+
+    private final Map<Long, CustomerOrder> database = new TreeMap<>();
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        database.clear();
+
+        user = User.builder().id(1L).build();
+        product = Product.builder().id(10L).price(Money.of(new BigDecimal("5.00"))).build();
+
+        when(userService.getUserById(1L)).thenReturn(user);
+        when(productService.getProductsByIds(anyCollection())).thenReturn(Map.of(10L, product));
+
+        when(customerOrderRepository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(database.get(invocation.<Long>getArgument(0))));
+        when(customerOrderRepository.findWithOrderProductsById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(database.get(invocation.<Long>getArgument(0))));
+        when(customerOrderRepository.findOrderResponseById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(database.get(invocation.<Long>getArgument(0))).map(this::header));
+        when(customerOrderRepository.findOrderResponsesAfter(any(), any())).thenAnswer(invocation ->
+                database.values().stream().map(this::header).toList());
+        when(orderProductRepository.findLinesByOrderIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> orderIds = invocation.getArgument(0);
+            return orderIds.stream()
+                    .filter(database::containsKey)
+                    .flatMap(id -> database.get(id).getOrderProducts().stream())
+                    .map(line -> new OrderLineView(line.getOrder().getId(), line.getId(), line.getProduct().getId(), line.getQuantity()))
+                    .toList();
+        });
+        when(customerOrderRepository.save(any(CustomerOrder.class))).thenAnswer(invocation -> {
+            CustomerOrder order = invocation.getArgument(0);
+            if (order.getId() == null) {
+                order.setId(database.size() + 1L);
+            }
+            database.put(order.getId(), order);
+            return order;
+        });
+        doAnswer(invocation -> database.remove(invocation.<CustomerOrder>getArgument(0).getId()))
+                .when(customerOrderRepository).delete(any(CustomerOrder.class));
+    }
+
+    @Test
+    public void testPlaceOrder_EvictsOrderList() {
+        // Arrange
+        database.put(1L, order(1L, 1));
+        assertEquals(1, orderService.getAllOrders(0L, 50).getItems().size());
+        assertEquals(1, orderService.getAllOrders(0L, 50).getItems().size());
+        verify(customerOrderRepository, times(1)).findOrderResponsesAfter(any(), any());
+
+        // Act
+        OrderResponse placed = orderService.placeOrder(request(3));
+
+        // Assert
+        assertEquals(2, orderService.getAllOrders(0L, 50).getItems().size());
+        assertEquals(3, orderService.getOrderResponseById(placed.getId()).getOrderProducts().get(0).getQuantity());
+        verify(customerOrderRepository, never()).findOrderResponseById(placed.getId());
+    }
+
+    @Test
+    public void testUpdateOrder_RefreshesEntryAndList() {
+        // Arrange
+        database.put(1L, order(1L, 1));
+        assertEquals(1, orderService.getOrderResponseById(1L).getOrderProducts().get(0).getQuantity());
+        assertEquals(1, orderService.getAllOrders(0L, 50).getItems().get(0).getOrderProducts().get(0).getQuantity());
+
+        // Act
+        orderService.updateOrder(1L, request(4));
+
+        // Assert
+        assertEquals(4, orderService.getOrderResponseById(1L).getOrderProducts().get(0).getQuantity());
+        assertEquals(4, orderService.getAllOrders(0L, 50).getItems().get(0).getOrderProducts().get(0).getQuantity());
+    }
+
+    @Test
+    public void testDeleteOrder_EvictsEntryAndList() {
+        // Arrange
+        database.put(1L, order(1L, 1));
+        orderService.getOrderResponseById(1L);
+        orderService.getAllOrders(0L, 50);
+
+        // Act
+        orderService.deleteOrder(1L);
+
+        // Assert
+        assertThrows(RuntimeException.class, () -> orderService.getOrderResponseById(1L));
+        assertTrue(orderService.getAllOrders(0L, 50).getItems().isEmpty());
+    }
+
+    @Test
+    public void testMakePayment_EvictsEntryAndList() {
+        // Arrange
+        database.put(1L, order(1L, 2));
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        assertEquals(OrderStatus.Pending, orderService.getOrderResponseById(1L).getOrderStatus());
+        assertEquals(OrderStatus.Pending, orderService.getAllOrders(0L, 50).getItems().get(0).getOrderStatus());
+
+        // Act
+        paymentService.makePayment(new PaymentRequest(1L, 1L, new BigDecimal("10.00")));
+
+        // Assert
+        assertEquals(OrderStatus.Success, orderService.getOrderResponseById(1L).getOrderStatus());
+        assertEquals(OrderStatus.Success, orderService.getAllOrders(0L, 50).getItems().get(0).getOrderStatus());
+    }
+
+    private OrderRequest request(int quantity) {
+        return new OrderRequest(1L, List.of(new ProductQuantity(10L, quantity)));
+    }
+
+    private OrderResponse header(CustomerOrder order) {
+        return new OrderResponse(order.getId(), order.getUser().getId(), order.getOrderAmount(),
+                order.getOrderStatus(), order.getCreatedOn(), order.getUpdatedOn());
+    }
+
+    private CustomerOrder order(Long id, int quantity) {
+        CustomerOrder order = CustomerOrder.builder()
+                .id(id)
+                .user(user)
+                .orderAmount(product.getPrice().times(quantity))
+                .orderStatus(OrderStatus.Pending)
+                .build();
+        OrderProduct orderProduct = OrderProduct.builder()
+                .id(id * 100)
+                .order(order)
+                .product(product)
+                .quantity(quantity)
+                .build();
+        order.setOrderProducts(new ArrayList<>(List.of(orderProduct)));
+        return order;
+    }
+}
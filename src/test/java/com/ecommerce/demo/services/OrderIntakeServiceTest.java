@@ -0,0 +1,165 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.config.RabbitMQConfig;
+import com.ecommerce.demo.dtos.BatchOrderResult;
+import com.ecommerce.demo.dtos.OrderIntakeMessage;
+import com.ecommerce.demo.dtos.OrderIntakeStatus;
+import com.ecommerce.demo.dtos.OrderRequest;
+import com.ecommerce.demo.dtos.ProductQuantity;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public class OrderIntakeServiceTest {
+
+    @InjectMocks
+    private OrderIntakeService orderIntakeService;
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations rabbitOperations;
+
+    @Mock
+    private HazelcastInstance hazelcastInstance;
+
+    @Mock
+    private IMap<Object, Object> statuses;
+
+    @Captor
+    private ArgumentCaptor<List<OrderRequest>> placed;
+
+    @Captor
+    private ArgumentCaptor<List<String>> trackingIds;
+
+    @Captor
+    private ArgumentCaptor<Map<Object, Object>> completed;
+
+    @Spy
+    private MessageConverter messageConverter = new Jackson2JsonMessageConverter();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(hazelcastInstance.getMap(CacheConfig.ORDER_INTAKE_MAP)).thenReturn(statuses);
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitOperations));
+    }
+
+    @Test
+    public void testSubmitOrder_QueuesOrderAndTracksIt() {
+        // Arrange
+        OrderRequest orderRequest = new OrderRequest(1L, List.of(new ProductQuantity(1L, 2)));
+
+        // Act
+        OrderIntakeStatus status = orderIntakeService.submitOrder(orderRequest);
+
+        // Assert
+        assertEquals(OrderIntakeStatus.State.QUEUED, status.getState());
+        verify(statuses).set(status.getTrackingId(), status);
+        ArgumentCaptor<OrderIntakeMessage> message = ArgumentCaptor.forClass(OrderIntakeMessage.class);
+        verify(rabbitOperations).convertAndSend(eq(RabbitMQConfig.EXCHANGE), eq(RabbitMQConfig.ORDER_INTAKE_ROUTING_KEY),
+                message.capture());
+        verify(rabbitOperations).waitForConfirmsOrDie(anyLong());
+        assertEquals(status.getTrackingId(), message.getValue().getTrackingId());
+        assertSame(orderRequest, message.getValue().getOrderRequest());
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    public void testSubmitOrder_InvalidRequestIsNotQueued() {
+        // Arrange
+        OrderRequest orderRequest = new OrderRequest(1L, List.of(new ProductQuantity(1L, 0)));
+
+        // Act
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> orderIntakeService.submitOrder(orderRequest));
+
+        // Assert
+        assertEquals("Quantity must be positive for product 1", exception.getMessage());
+        verifyNoInteractions(rabbitTemplate, statuses);
+    }
+
+    @Test
+    public void testConsumeOrders_PlacesBatchAndRecordsOutcomes() {
+        // Arrange
+        OrderRequest valid = new OrderRequest(1L, List.of(new ProductQuantity(1L, 2)));
+        OrderRequest unknownUser = new OrderRequest(9L, List.of(new ProductQuantity(1L, 2)));
+        when(statuses.getAll(anySet())).thenReturn(Map.of(
+                "already-placed", OrderIntakeStatus.builder().state(OrderIntakeStatus.State.PLACED).orderId(5L).build()));
+        when(orderService.placeIntakeOrders(anyList(), anyList())).thenReturn(List.of(
+                BatchOrderResult.builder().index(0).success(true).orderId(51L).orderAmount(new BigDecimal("40.00")).build(),
+                BatchOrderResult.builder().index(1).success(false).error("User not found with id 9").build()));
+
+        // Act
+        orderIntakeService.consumeOrders(List.of(
+                intakeMessage("t-1", valid), intakeMessage("already-placed", valid), intakeMessage("t-2", unknownUser)));
+
+        // Assert
+        verify(orderService, times(1)).placeIntakeOrders(placed.capture(), trackingIds.capture());
+        assertEquals(List.of(1L, 9L), placed.getValue().stream().map(OrderRequest::getUserId).toList());
+        assertEquals(List.of("t-1", "t-2"), trackingIds.getValue());
+
+        verify(statuses).putAll(completed.capture());
+        assertEquals(2, completed.getValue().size());
+        OrderIntakeStatus placedStatus = (OrderIntakeStatus) completed.getValue().get("t-1");
+        assertEquals(OrderIntakeStatus.State.PLACED, placedStatus.getState());
+        assertEquals(51L, placedStatus.getOrderId());
+        OrderIntakeStatus failedStatus = (OrderIntakeStatus) completed.getValue().get("t-2");
+        assertEquals(OrderIntakeStatus.State.FAILED, failedStatus.getState());
+        assertEquals("User not found with id 9", failedStatus.getError());
+    }
+
+    @Test
+    public void testConsumeOrders_PoisonMessagesRoutedToDeadLetterQueue() {
+        // Arrange
+        Message unreadable = new Message("not json".getBytes(StandardCharsets.UTF_8), new MessageProperties());
+
+        // Act
+        orderIntakeService.consumeOrders(List.of(unreadable));
+
+        // Assert
+        verify(rabbitTemplate).send(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, unreadable);
+        verifyNoInteractions(orderService);
+    }
+
+    private Message intakeMessage(String trackingId, OrderRequest orderRequest) {
+        return messageConverter.toMessage(OrderIntakeMessage.builder()
+                .trackingId(trackingId)
+                .orderRequest(orderRequest)
+                .acceptedOn(LocalDateTime.now())
+                .build(), new MessageProperties());
+    }
+}
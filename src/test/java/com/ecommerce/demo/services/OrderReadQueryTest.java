@@ -0,0 +1,137 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.dtos.CursorPage;
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.entity.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the SQL statements issued by the order read paths using Hibernate statistics.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderService.class)
+public class OrderReadQueryTest {
+
+    private static final int ORDERS = 20;
+    private static final int LINES_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private StockService stockService;
+
+    private Statistics statistics;
+    private Long firstOrderId;
+
+    @BeforeEach
+    public void setUp() {
+        User user = entityManager.persist(User.builder().userName("rahim").email("rahim@xyz.com").build());
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < LINES_PER_ORDER; i++) {
+            products.add(entityManager.persist(Product.builder().productName("product " + i).price(Money.of(BigDecimal.TEN)).build()));
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            CustomerOrder order = CustomerOrder.builder()
+                    .user(user)
+                    .orderAmount(Money.of(BigDecimal.valueOf(30)))
+                    .orderStatus(OrderStatus.Pending)
+                    .orderProducts(new ArrayList<>())
+                    .build();
+            products.forEach(product -> order.getOrderProducts().add(
+                    OrderProduct.builder().order(order).product(product).quantity(1).build()));
+            entityManager.persist(order);
+            if (firstOrderId == null) {
+                firstOrderId = order.getId();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void testGetAllOrders_TwoStatementsPerPage() {
+        // Act
+        CursorPage<OrderResponse> page = orderService.getAllOrders(0L, 50);
+
+        // Assert
+        assertEquals(ORDERS, page.getItems().size());
+        assertNull(page.getNextAfterId());
+        page.getItems().forEach(order -> assertEquals(LINES_PER_ORDER, order.getOrderProducts().size()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void testGetAllOrders_KeysetPagesAreBounded() {
+        // Act
+        CursorPage<OrderResponse> first = orderService.getAllOrders(0L, 8);
+        CursorPage<OrderResponse> second = orderService.getAllOrders(first.getNextAfterId(), 8);
+        CursorPage<OrderResponse> last = orderService.getAllOrders(second.getNextAfterId(), 8);
+
+        // Assert
+        assertEquals(8, first.getItems().size());
+        assertEquals(8, second.getItems().size());
+        assertEquals(ORDERS - 16, last.getItems().size());
+        assertNull(last.getNextAfterId());
+        assertEquals(6, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testGetOrderResponseById_TwoStatements() {
+        // Act
+        OrderResponse order = orderService.getOrderResponseById(firstOrderId);
+
+        // Assert
+        assertEquals(LINES_PER_ORDER, order.getOrderProducts().size());
+        assertNotNull(order.getUserId());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void testStreamAllOrders_TwoStatementsPerChunk() {
+        // Act
+        List<OrderResponse> streamed = new ArrayList<>();
+        orderService.streamAllOrders(streamed::add);
+
+        // Assert
+        assertEquals(ORDERS, streamed.size());
+        streamed.forEach(order -> assertEquals(LINES_PER_ORDER, order.getOrderProducts().size()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,166 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ecommerce.demo.dtos.OrderProductResponse;
+import com.ecommerce.demo.dtos.OrderRequest;
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.dtos.ProductQuantity;
+import com.ecommerce.demo.entity.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * updateOrder against the database: only the lines that changed are written.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderService.class)
+public class OrderUpdateTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private StockService stockService;
+
+    private Statistics statistics;
+
+    private User user;
+
+    private final List<Product> products = new ArrayList<>();
+
+    private Long orderId;
+
+    //order of 2 x product 0, 3 x product 1 and 1 x product 2; prices are 1, 2, 3 and 4
+    @BeforeEach
+    public void setUp() {
+        user = entityManager.persist(User.builder().userName("rahim").email("rahim@xyz.com").build());
+        for (int i = 0; i < 4; i++) {
+            products.add(entityManager.persist(Product.builder().productName("product " + i).price(Money.of(BigDecimal.valueOf(i + 1))).build()));
+        }
+        CustomerOrder order = CustomerOrder.builder()
+                .user(user)
+                .orderAmount(Money.of(new BigDecimal("11")))
+                .orderStatus(OrderStatus.Pending)
+                .orderProducts(new ArrayList<>())
+                .build();
+        int[] quantities = {2, 3, 1};
+        for (int i = 0; i < quantities.length; i++) {
+            order.getOrderProducts().add(OrderProduct.builder()
+                    .order(order)
+                    .product(products.get(i))
+                    .quantity(quantities[i])
+                    .unitPrice(products.get(i).getPrice())
+                    .build());
+        }
+        orderId = entityManager.persist(order).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        when(userService.getUserById(user.getId())).thenReturn(user);
+        when(productService.getProductsByIds(anyCollection())).thenReturn(
+                products.stream().collect(Collectors.toMap(Product::getId, Function.identity())));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void testUpdateOrder_WritesOnlyChangedLines() {
+        // Arrange
+        Map<Long, Long> lineIds = lineIdsByProduct();
+
+        // Act
+        //product 0 unchanged, product 1 from 3 to 5, product 2 removed, product 3 added
+        OrderResponse response = orderService.updateOrder(orderId, request(Map.of(0, 2, 1, 5, 3, 4)));
+        entityManager.flush();
+        entityManager.clear();
+
+        // Assert
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(1, statistics.getEntityDeleteCount());
+        //the changed line and the order's amount and version
+        assertEquals(2, statistics.getEntityUpdateCount());
+
+        Map<Long, Long> updatedLineIds = lineIdsByProduct();
+        assertEquals(3, updatedLineIds.size());
+        assertEquals(lineIds.get(products.get(0).getId()), updatedLineIds.get(products.get(0).getId()));
+        assertEquals(lineIds.get(products.get(1).getId()), updatedLineIds.get(products.get(1).getId()));
+        assertFalse(updatedLineIds.containsKey(products.get(2).getId()));
+
+        //2 x 1 + 5 x 2 + 4 x 4
+        assertEquals(0, new BigDecimal("28").compareTo(response.getOrderAmount()));
+        assertEquals(0, new BigDecimal("28").compareTo(entityManager.find(CustomerOrder.class, orderId).getOrderAmount().toBigDecimal()));
+        assertEquals(updatedLineIds.keySet(), response.getOrderProducts().stream()
+                .map(OrderProductResponse::getProductId).collect(Collectors.toSet()));
+        response.getOrderProducts().forEach(line -> assertNotNull(line.getId()));
+    }
+
+    @Test
+    public void testUpdateOrder_DuplicateProductsBecomeOneLine() {
+        // Act
+        OrderResponse response = orderService.updateOrder(orderId, new OrderRequest(user.getId(), List.of(
+                new ProductQuantity(products.get(0).getId(), 1),
+                new ProductQuantity(products.get(0).getId(), 2))));
+        entityManager.flush();
+
+        // Assert
+        assertEquals(1, response.getOrderProducts().size());
+        assertEquals(3, response.getOrderProducts().get(0).getQuantity());
+        assertEquals(0, new BigDecimal("3").compareTo(response.getOrderAmount()));
+        assertEquals(2, statistics.getEntityDeleteCount());
+        verify(stockService).adjustReservation(
+                Map.of(products.get(0).getId(), 2, products.get(1).getId(), 3, products.get(2).getId(), 1),
+                Map.of(products.get(0).getId(), 3));
+    }
+
+    private OrderRequest request(Map<Integer, Integer> quantityByProductIndex) {
+        List<ProductQuantity> lines = new ArrayList<>();
+        quantityByProductIndex.forEach((index, quantity) -> lines.add(new ProductQuantity(products.get(index).getId(), quantity)));
+        return new OrderRequest(user.getId(), lines);
+    }
+
+    private Map<Long, Long> lineIdsByProduct() {
+        Map<Long, Long> lineIds = new HashMap<>();
+        entityManager.getEntityManager()
+                .createQuery("from OrderProduct op where op.order.id = :orderId", OrderProduct.class)
+                .setParameter("orderId", orderId)
+                .getResultList()
+                .forEach(line -> lineIds.put(line.getProduct().getId(), line.getId()));
+        return lineIds;
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.ecommerce.demo.config.RabbitMQConfig;
+import com.ecommerce.demo.dtos.PaymentEvent;
+import com.ecommerce.demo.entity.Money;
+import com.ecommerce.demo.entity.OutboxEvent;
+import com.ecommerce.demo.repository.OutboxEventRepository;
+import com.ecommerce.demo.repository.PaymentRepository;
+import com.ecommerce.demo.config.MetricsConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class OutboxRelayServiceTest {
+
+    @InjectMocks
+    private OutboxRelayService outboxRelayService;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations rabbitOperations;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(outboxRelayService, "batchSize", 2);
+        ReflectionTestUtils.setField(outboxRelayService, "confirmTimeout", 1000L);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitOperations));
+    }
+
+    @Test
+    public void testPublishBatch_MarksEventsPublishedAfterConfirm() {
+        // Arrange
+        OutboxEvent event = OutboxEvent.builder().id(1L).aggregateId(10L).eventType(PaymentService.PAYMENT_SUCCEEDED).build();
+        PaymentEvent paymentEvent = paymentEvent(10L);
+        when(outboxEventRepository.findUnpublishedForUpdate(any())).thenReturn(List.of(event));
+        when(paymentRepository.findPaymentEventsByIds(List.of(10L))).thenReturn(List.of(paymentEvent));
+
+        // Act
+        int published = outboxRelayService.publishBatch();
+
+        // Assert
+        assertEquals(1, published);
+        assertNotNull(event.getPublishedOn());
+        verify(rabbitOperations).convertAndSend(RabbitMQConfig.EXCHANGE, RabbitMQConfig.ROUTING_KEY, paymentEvent);
+        assertEquals(1L, paymentEvent.getEventId());
+        assertNotNull(paymentEvent.getPublishedOn());
+        verify(rabbitOperations).waitForConfirmsOrDie(1000L);
+    }
+
+    @Test
+    public void testPublishBatch_UnconfirmedEventsStayPending() {
+        // Arrange
+        OutboxEvent event = OutboxEvent.builder().id(1L).aggregateId(10L).eventType(PaymentService.PAYMENT_SUCCEEDED).build();
+        when(outboxEventRepository.findUnpublishedForUpdate(any())).thenReturn(List.of(event));
+        when(paymentRepository.findPaymentEventsByIds(List.of(10L))).thenReturn(List.of(paymentEvent(10L)));
+        doThrow(new AmqpException("nack")).when(rabbitOperations).waitForConfirmsOrDie(anyLong());
+
+        // Act
+        outboxRelayService.relay();
+
+        // Assert
+        assertNull(event.getPublishedOn());
+        assertEquals(1, meterRegistry.counter(MetricsConfig.RABBITMQ_PUBLISH_FAILURES_COUNTER).count());
+    }
+
+    @Test
+    public void testRelay_DrainsFullBatchesUntilEmpty() {
+        // Arrange
+        OutboxEvent first = OutboxEvent.builder().id(1L).aggregateId(10L).build();
+        OutboxEvent second = OutboxEvent.builder().id(2L).aggregateId(11L).build();
+        when(outboxEventRepository.findUnpublishedForUpdate(any()))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of());
+        when(paymentRepository.findPaymentEventsByIds(anyCollection())).thenReturn(List.of(
+                paymentEvent(10L), paymentEvent(11L)));
+
+        // Act
+        outboxRelayService.relay();
+
+        // Assert
+        verify(outboxEventRepository, times(2)).findUnpublishedForUpdate(any());
+        verify(rabbitOperations, times(2)).convertAndSend(eq(RabbitMQConfig.EXCHANGE), eq(RabbitMQConfig.ROUTING_KEY), any(Object.class));
+    }
+
+    private PaymentEvent paymentEvent(Long paymentId) {
+        return new PaymentEvent(paymentId, 1L, 2L, Money.of(BigDecimal.TEN), null);
+    }
+}
@@ -0,0 +1,163 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.dtos.PaymentRequest;
+import com.ecommerce.demo.entity.*;
+import com.ecommerce.demo.repository.CustomerOrderRepository;
+import com.ecommerce.demo.repository.OutboxEventRepository;
+import com.ecommerce.demo.repository.PaymentRepository;
+import com.ecommerce.demo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Fires parallel payments at the same order against a real database to check that
+ * optimistic versioning and idempotency keys allow exactly one successful payment.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({PaymentService.class, OrderService.class, UserService.class, SimpleMeterRegistry.class})
+public class PaymentConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CustomerOrderRepository customerOrderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private StockService stockService;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        outboxEventRepository.deleteAll();
+        paymentRepository.deleteAll();
+        customerOrderRepository.deleteAll();
+        userRepository.deleteAll();
+        user = userRepository.save(User.builder().userName("rahim").email("rahim@xyz.com").build());
+    }
+
+    @Test
+    public void testParallelPayments_ExactlyOneSuccessPerOrder() throws Exception {
+        for (int round = 0; round < 5; round++) {
+            // Arrange
+            CustomerOrder order = newOrder();
+            List<Callable<Payment>> payments = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                String idempotencyKey = "order-" + order.getId() + "-attempt-" + i;
+                payments.add(() -> paymentService.makePayment(
+                        new PaymentRequest(order.getId(), user.getId(), new BigDecimal("100.00"), idempotencyKey)));
+            }
+
+            // Act
+            List<Object> outcomes = runConcurrently(payments);
+
+            // Assert
+            long successes = outcomes.stream()
+                    .filter(outcome -> outcome instanceof Payment payment && payment.getPaymentStatus() == PaymentStatus.Success)
+                    .count();
+            long rejected = outcomes.stream()
+                    .filter(outcome -> outcome instanceof RuntimeException e && "Order payment has been already received!".equals(e.getMessage()))
+                    .count();
+            assertEquals(1, successes, "outcomes: " + outcomes);
+            assertEquals(THREADS - 1, rejected, "outcomes: " + outcomes);
+            assertEquals(OrderStatus.Success, customerOrderRepository.findById(order.getId()).orElseThrow().getOrderStatus());
+        }
+        assertEquals(5, paymentRepository.count());
+        assertEquals(5, outboxEventRepository.count());
+    }
+
+    @Test
+    public void testParallelRetriesWithSameKey_CreateOnePayment() throws Exception {
+        // Arrange
+        CustomerOrder order = newOrder();
+        List<Callable<Payment>> payments = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            payments.add(() -> paymentService.makePayment(
+                    new PaymentRequest(order.getId(), user.getId(), new BigDecimal("100.00"), "client-retry-key")));
+        }
+
+        // Act
+        List<Object> outcomes = runConcurrently(payments);
+
+        // Assert
+        Set<Long> paymentIds = outcomes.stream()
+                .map(outcome -> assertInstanceOf(Payment.class, outcome, "outcomes: " + outcomes).getId())
+                .collect(Collectors.toSet());
+        assertEquals(1, paymentIds.size());
+        assertEquals(1, paymentRepository.count());
+        assertEquals(1, outboxEventRepository.count());
+    }
+
+    private CustomerOrder newOrder() {
+        return customerOrderRepository.save(CustomerOrder.builder()
+                .user(user)
+                .orderAmount(Money.of(new BigDecimal("100.00")))
+                .orderStatus(OrderStatus.Pending)
+                .orderProducts(new ArrayList<>())
+                .build());
+    }
+
+    //Releases every task at once and returns each result or the exception it failed with
+    private List<Object> runConcurrently(List<Callable<Payment>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Payment>> futures = new ArrayList<>();
+            for (Callable<Payment> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<Object> outcomes = new ArrayList<>();
+            for (Future<Payment> future : futures) {
+                try {
+                    outcomes.add(future.get(30, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    outcomes.add(e.getCause());
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -3,15 +3,21 @@ package com.ecommerce.demo.services;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import com.ecommerce.demo.config.MetricsConfig;
 import com.ecommerce.demo.dtos.PaymentRequest;
 import com.ecommerce.demo.entity.*;
+import com.ecommerce.demo.exception.IdempotencyKeyConflictException;
+import com.ecommerce.demo.exception.InsufficientStockException;
+import com.ecommerce.demo.repository.OutboxEventRepository;
 import com.ecommerce.demo.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.mockito.Spy;
 
 import java.math.BigDecimal;
 import java.util.Optional;
@@ -30,18 +36,52 @@ public class PaymentServiceTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
     }
 
+    @Test
+    public void testMakePayment_RetryAfterFailureWithoutStockFails() {
+        // Arrange
+        PaymentRequest paymentRequest = new PaymentRequest(1L, 2L, new BigDecimal("100.00"));
+        CustomerOrder customerOrder = new CustomerOrder();
+        customerOrder.setId(1L);
+        customerOrder.setOrderAmount(Money.of(new BigDecimal("100.00")));
+        customerOrder.setOrderStatus(OrderStatus.Failed);
+
+        User user = new User();
+        user.setId(2L);
+
+        when(orderService.getOrderById(1L)).thenReturn(customerOrder);
+        when(userService.getUserById(2L)).thenReturn(user);
+        doThrow(new InsufficientStockException("Insufficient stock for products [7]"))
+                .when(orderService).updateOrderStatus(customerOrder, OrderStatus.Success);
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Payment actualPayment = paymentService.makePayment(paymentRequest);
+
+        // Assert
+        assertEquals(PaymentStatus.Failed, actualPayment.getPaymentStatus());
+        assertEquals("Insufficient stock for products [7]", actualPayment.getErrorMessage());
+        verify(outboxEventRepository, never()).save(any(OutboxEvent.class));
+        assertEquals(1, meterRegistry.timer(MetricsConfig.PAYMENTS_TIMER, "outcome", "Failed").count());
+    }
+
     @Test
     public void testMakePayment_Success() {
         // Arrange
         PaymentRequest paymentRequest = new PaymentRequest(1L, 2L, new BigDecimal("100.00"));
         CustomerOrder customerOrder = new CustomerOrder();
         customerOrder.setId(1L);
-        customerOrder.setOrderAmount(new BigDecimal("100.00"));
+        customerOrder.setOrderAmount(Money.of(new BigDecimal("100.00")));
         customerOrder.setOrderStatus(OrderStatus.Pending);
 
         User user = new User();
@@ -50,21 +90,23 @@ public class PaymentServiceTest {
         Payment expectedPayment = Payment.builder()
                 .order(customerOrder)
                 .user(user)
-                .receivedAmount(paymentRequest.getAmount())
+                .receivedAmount(Money.of(paymentRequest.getAmount()))
                 .paymentStatus(PaymentStatus.Success)
                 .build();
 
         when(orderService.getOrderById(1L)).thenReturn(customerOrder);
         when(userService.getUserById(2L)).thenReturn(user);
-        when(paymentRepository.save(any(Payment.class))).thenReturn(expectedPayment);
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenReturn(expectedPayment);
 
         // Act
         Payment actualPayment = paymentService.makePayment(paymentRequest);
 
         // Assert
         assertEquals(PaymentStatus.Success, actualPayment.getPaymentStatus());
-        assertEquals("100.00", actualPayment.getReceivedAmount().toPlainString());
+        assertEquals("100.00", actualPayment.getReceivedAmount().toBigDecimal().toPlainString());
         verify(orderService).updateOrderStatus(customerOrder, OrderStatus.Success);
+        verify(outboxEventRepository).save(any(OutboxEvent.class));
+        assertEquals(1, meterRegistry.timer(MetricsConfig.PAYMENTS_TIMER, "outcome", "Success").count());
     }
 
     @Test
@@ -73,7 +115,7 @@ public class PaymentServiceTest {
         PaymentRequest paymentRequest = new PaymentRequest(1L, 2L, new BigDecimal("50.00"));
         CustomerOrder customerOrder = new CustomerOrder();
         customerOrder.setId(1L);
-        customerOrder.setOrderAmount(new BigDecimal("100.00"));
+        customerOrder.setOrderAmount(Money.of(new BigDecimal("100.00")));
         customerOrder.setOrderStatus(OrderStatus.Pending);
 
         User user = new User();
@@ -82,14 +124,14 @@ public class PaymentServiceTest {
         Payment expectedPayment = Payment.builder()
                 .order(customerOrder)
                 .user(user)
-                .receivedAmount(paymentRequest.getAmount())
+                .receivedAmount(Money.of(paymentRequest.getAmount()))
                 .paymentStatus(PaymentStatus.Failed)
                 .errorMessage("Insufficient amount!")
                 .build();
 
         when(orderService.getOrderById(1L)).thenReturn(customerOrder);
         when(userService.getUserById(2L)).thenReturn(user);
-        when(paymentRepository.save(any(Payment.class))).thenReturn(expectedPayment);  // Ensure save is mocked
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenReturn(expectedPayment);  // Ensure save is mocked
 
         // Act
         Payment actualPayment = paymentService.makePayment(paymentRequest);
@@ -98,6 +140,7 @@ public class PaymentServiceTest {
         assertEquals(PaymentStatus.Failed, actualPayment.getPaymentStatus());
         assertEquals("Insufficient amount!", actualPayment.getErrorMessage());
         verify(orderService).updateOrderStatus(customerOrder, OrderStatus.Failed);
+        verify(outboxEventRepository, never()).save(any(OutboxEvent.class));
     }
 
     @Test
@@ -106,7 +149,7 @@ public class PaymentServiceTest {
         PaymentRequest paymentRequest = new PaymentRequest(1L, 2L, new BigDecimal("150.00"));
         CustomerOrder customerOrder = new CustomerOrder();
         customerOrder.setId(1L);
-        customerOrder.setOrderAmount(new BigDecimal("100.00"));
+        customerOrder.setOrderAmount(Money.of(new BigDecimal("100.00")));
         customerOrder.setOrderStatus(OrderStatus.Pending);
 
         User user = new User();
@@ -115,14 +158,14 @@ public class PaymentServiceTest {
         Payment expectedPayment = Payment.builder()
                 .order(customerOrder)
                 .user(user)
-                .receivedAmount(paymentRequest.getAmount())
+                .receivedAmount(Money.of(paymentRequest.getAmount()))
                 .paymentStatus(PaymentStatus.Failed)
                 .errorMessage("Payment amount exceeding order amount!")
                 .build();
 
         when(orderService.getOrderById(1L)).thenReturn(customerOrder);
         when(userService.getUserById(2L)).thenReturn(user);
-        when(paymentRepository.save(any(Payment.class))).thenReturn(expectedPayment);  // Ensure save is mocked
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenReturn(expectedPayment);  // Ensure save is mocked
 
         // Act
         Payment actualPayment = paymentService.makePayment(paymentRequest);
@@ -131,6 +174,7 @@ public class PaymentServiceTest {
         assertEquals(PaymentStatus.Failed, actualPayment.getPaymentStatus());
         assertEquals("Payment amount exceeding order amount!", actualPayment.getErrorMessage());
         verify(orderService).updateOrderStatus(customerOrder, OrderStatus.Failed);
+        verify(outboxEventRepository, never()).save(any(OutboxEvent.class));
     }
 
 
@@ -140,7 +184,7 @@ public class PaymentServiceTest {
         PaymentRequest paymentRequest = new PaymentRequest(1L, 2L, new BigDecimal("100.00"));
         CustomerOrder customerOrder = new CustomerOrder();
         customerOrder.setId(1L);
-        customerOrder.setOrderAmount(new BigDecimal("100.00"));
+        customerOrder.setOrderAmount(Money.of(new BigDecimal("100.00")));
         customerOrder.setOrderStatus(OrderStatus.Success);  // Already paid order
 
         when(orderService.getOrderById(1L)).thenReturn(customerOrder);
@@ -151,4 +195,52 @@ public class PaymentServiceTest {
         });
         assertEquals("Order payment has been already received!", thrown.getMessage());
     }
+
+    @Test
+    public void testMakePayment_SameIdempotencyKeyReturnsOriginalPayment() {
+        // Arrange
+        PaymentRequest paymentRequest = new PaymentRequest(1L, 2L, new BigDecimal("100.00"), "key-1");
+        Payment originalPayment = Payment.builder()
+                .id(5L)
+                .order(CustomerOrder.builder().id(1L).build())
+                .user(User.builder().id(2L).build())
+                .receivedAmount(Money.of(paymentRequest.getAmount()))
+                .paymentStatus(PaymentStatus.Success)
+                .idempotencyKey("key-1")
+                .build();
+
+        when(paymentRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(originalPayment));
+
+        // Act
+        Payment actualPayment = paymentService.makePayment(paymentRequest);
+
+        // Assert
+        assertSame(originalPayment, actualPayment);
+        verify(paymentRepository, never()).save(any(Payment.class));
+        verifyNoInteractions(orderService, outboxEventRepository);
+    }
+
+    @Test
+    public void testMakePayment_SameIdempotencyKeyDifferentRequestRejected() {
+        // Arrange
+        Payment originalPayment = Payment.builder()
+                .id(5L)
+                .order(CustomerOrder.builder().id(1L).build())
+                .user(User.builder().id(2L).build())
+                .receivedAmount(Money.of(new BigDecimal("100.00")))
+                .paymentStatus(PaymentStatus.Success)
+                .idempotencyKey("key-1")
+                .build();
+        when(paymentRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(originalPayment));
+
+        // Act & Assert
+        assertThrows(IdempotencyKeyConflictException.class, () ->
+                paymentService.makePayment(new PaymentRequest(3L, 2L, new BigDecimal("100.00"), "key-1")));
+        assertThrows(IdempotencyKeyConflictException.class, () ->
+                paymentService.makePayment(new PaymentRequest(1L, 4L, new BigDecimal("100.00"), "key-1")));
+        assertThrows(IdempotencyKeyConflictException.class, () ->
+                paymentService.makePayment(new PaymentRequest(1L, 2L, new BigDecimal("90.00"), "key-1")));
+        assertSame(originalPayment, paymentService.makePayment(new PaymentRequest(1L, 2L, new BigDecimal("100"), "key-1")));
+        verifyNoInteractions(orderService, outboxEventRepository);
+    }
 }
@@ -0,0 +1,126 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.ecommerce.demo.entity.Money;
+import com.ecommerce.demo.entity.Product;
+import com.ecommerce.demo.repository.ProductRepository;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+public class ProductServiceTest {
+
+    @InjectMocks
+    private ProductService productService;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private HazelcastInstance hazelcastInstance;
+
+    @Mock
+    private IMap<Long, Product> productCache;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(hazelcastInstance.<Long, Product>getMap(anyString())).thenReturn(productCache);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50, 200})
+    public void testGetProductsByIds_SingleQueryForAnyCartSize(int cartSize) {
+        // Arrange
+        List<Long> ids = LongStream.rangeClosed(1, cartSize).boxed().toList();
+        List<Product> products = ids.stream()
+                .map(id -> Product.builder().id(id).price(Money.of(BigDecimal.TEN)).build())
+                .toList();
+        when(productRepository.findAllById(anyIterable())).thenReturn(products);
+
+        // Act
+        Map<Long, Product> resolved = productService.getProductsByIds(ids);
+
+        // Assert
+        assertEquals(cartSize, resolved.size());
+        verify(productRepository, times(1)).findAllById(anyIterable());
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    public void testGetProductsByIds_DuplicateIdsResolvedOnce() {
+        // Arrange
+        Product product = Product.builder().id(1L).price(Money.of(BigDecimal.TEN)).build();
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product));
+
+        // Act
+        Map<Long, Product> resolved = productService.getProductsByIds(List.of(1L, 1L, 1L));
+
+        // Assert
+        assertEquals(1, resolved.size());
+        assertEquals(1L, resolved.get(1L).getId());
+    }
+
+    @Test
+    public void testGetProductsByIds_ReportsAllMissingIds() {
+        // Arrange
+        Product product = Product.builder().id(2L).price(Money.of(BigDecimal.TEN)).build();
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product));
+
+        // Act & Assert
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> {
+            productService.getProductsByIds(List.of(5L, 2L, 3L));
+        });
+        assertEquals("Products not found with ids [3, 5]", thrown.getMessage());
+    }
+
+    @Test
+    public void testGetProductsByIds_CachedProductsSkipDatabase() {
+        // Arrange
+        Product product = Product.builder().id(1L).price(Money.of(BigDecimal.TEN)).build();
+        when(productCache.getAll(Set.of(1L))).thenReturn(Map.of(1L, product));
+
+        // Act
+        Map<Long, Product> resolved = productService.getProductsByIds(List.of(1L));
+
+        // Assert
+        assertSame(product, resolved.get(1L));
+        verify(productRepository, never()).findAllById(anyIterable());
+        assertEquals(1, productService.getCacheHits());
+        assertEquals(0, productService.getCacheMisses());
+    }
+
+    @Test
+    public void testGetProductById_MissLoadsAndCaches() {
+        // Arrange
+        Product product = Product.builder().id(1L).productName("pen").price(Money.of(BigDecimal.TEN)).build();
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        // Act
+        Product resolved = productService.getProductById(1L);
+
+        // Assert
+        //the detached copy a hit would return, not the loaded entity
+        assertEquals("pen", resolved.getProductName());
+        assertNotSame(product, resolved);
+        verify(productCache).set(1L, resolved);
+        assertEquals(1, productService.getCacheMisses());
+    }
+}
@@ -0,0 +1,154 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.dtos.PaymentEvent;
+import com.ecommerce.demo.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental sales aggregates against a rebuild from the transaction table.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ReportService.class)
+public class ReportServiceTest {
+
+    private static final LocalDateTime DAY_ONE = LocalDateTime.of(2024, 3, 1, 10, 0);
+    private static final LocalDateTime DAY_TWO = LocalDateTime.of(2024, 3, 2, 10, 0);
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User rahim;
+    private User karim;
+    private Product pen;
+    private Product book;
+
+    @BeforeEach
+    public void setUp() {
+        rahim = entityManager.persist(User.builder().userName("rahim").email("rahim@xyz.com").build());
+        karim = entityManager.persist(User.builder().userName("karim").email("karim@xyz.com").build());
+        pen = entityManager.persist(Product.builder().productName("pen").price(Money.of(new BigDecimal("2.50"))).build());
+        book = entityManager.persist(Product.builder().productName("book").price(Money.of(new BigDecimal("10.00"))).build());
+    }
+
+    @Test
+    public void testRecordSales_AddsEachBatchToTheAggregates() {
+        // Arrange
+        CustomerOrder first = persistOrder(rahim, 2, 1);
+        CustomerOrder second = persistOrder(karim, 4, 0);
+        CustomerOrder third = persistOrder(rahim, 0, 3);
+
+        // Act
+        record(DAY_ONE, first, second);
+        record(DAY_TWO, third);
+
+        // Assert
+        UserSales rahimSales = reportService.getUserSales(rahim.getId());
+        assertEquals(2, rahimSales.getOrderCount());
+        assertEquals(0, new BigDecimal("45.00").compareTo(rahimSales.getRevenue()));
+        ProductSales penSales = reportService.getProductSales(pen.getId());
+        assertEquals(6, penSales.getUnitsSold());
+        assertEquals(0, new BigDecimal("15.00").compareTo(penSales.getRevenue()));
+        assertEquals(4, reportService.getProductSales(book.getId()).getUnitsSold());
+        List<DailySales> days = reportService.getDailySales(DAY_ONE.toLocalDate(), DAY_TWO.toLocalDate());
+        assertEquals(List.of(2L, 1L), days.stream().map(DailySales::getOrderCount).toList());
+        assertEquals(0, new BigDecimal("25.00").compareTo(days.get(0).getRevenue()));
+        assertEquals(0, reportService.getUserSales(-1L).getOrderCount());
+    }
+
+    @Test
+    public void testRebuild_MatchesIncrementalAggregates() {
+        // Arrange
+        record(DAY_ONE, persistOrder(rahim, 2, 1), persistOrder(karim, 4, 0));
+        record(DAY_TWO, persistOrder(rahim, 0, 3), persistOrder(karim, 1, 1));
+        List<String> incremental = snapshot();
+
+        // Act
+        reportService.rebuild();
+
+        // Assert
+        assertEquals(incremental, snapshot());
+        assertFalse(incremental.isEmpty());
+    }
+
+    @Test
+    public void testRecordSales_RevenueAtThePriceTheOrderWasPlacedAt() {
+        // Arrange
+        CustomerOrder order = persistOrder(rahim, 2, 0);
+        jdbcTemplate.update("update product set price = ? where id = ?", new BigDecimal("4.00"), pen.getId());
+
+        // Act
+        record(DAY_ONE, order);
+        BigDecimal incremental = reportService.getProductSales(pen.getId()).getRevenue();
+        reportService.rebuild();
+
+        // Assert
+        assertEquals(0, new BigDecimal("5.00").compareTo(incremental));
+        assertEquals(0, new BigDecimal("5.00").compareTo(reportService.getProductSales(pen.getId()).getRevenue()));
+    }
+
+    //what TransactionService does for one delivery: store the transaction rows, then the aggregate deltas
+    private void record(LocalDateTime recordedOn, CustomerOrder... orders) {
+        List<PaymentEvent> paymentEvents = new ArrayList<>();
+        for (CustomerOrder order : orders) {
+            jdbcTemplate.update("insert into transaction (customer_order_id, user_id, amount, created_on, updated_on) "
+                            + "values (?, ?, ?, ?, ?)", order.getId(), order.getUser().getId(), order.getOrderAmount().toBigDecimal(),
+                    Timestamp.valueOf(recordedOn), Timestamp.valueOf(recordedOn));
+            paymentEvents.add(PaymentEvent.builder()
+                    .orderId(order.getId())
+                    .userId(order.getUser().getId())
+                    .amount(order.getOrderAmount().toBigDecimal())
+                    .build());
+        }
+        reportService.recordSales(paymentEvents, recordedOn);
+        entityManager.clear();
+    }
+
+    private CustomerOrder persistOrder(User user, int pens, int books) {
+        CustomerOrder order = CustomerOrder.builder()
+                .user(user)
+                .orderProducts(new ArrayList<>())
+                .orderStatus(OrderStatus.Success)
+                .build();
+        if (pens > 0) {
+            order.getOrderProducts().add(OrderProduct.builder().order(order).product(pen).quantity(pens).unitPrice(pen.getPrice()).build());
+        }
+        if (books > 0) {
+            order.getOrderProducts().add(OrderProduct.builder().order(order).product(book).quantity(books).unitPrice(book.getPrice()).build());
+        }
+        order.setOrderAmount(OrderService.calculateOrderAmount(order.getOrderProducts()));
+        return entityManager.persistAndFlush(order);
+    }
+
+    private List<String> snapshot() {
+        List<String> rows = new ArrayList<>();
+        rows.addAll(jdbcTemplate.queryForList("select concat(user_id, ':', order_count, ':', revenue) from user_sales order by user_id", String.class));
+        rows.addAll(jdbcTemplate.queryForList("select concat(product_id, ':', units_sold, ':', revenue) from product_sales order by product_id", String.class));
+        rows.addAll(jdbcTemplate.queryForList("select concat(sales_date, ':', order_count, ':', revenue) from daily_sales order by sales_date", String.class));
+        return rows;
+    }
+}
@@ -0,0 +1,121 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.dtos.CursorPage;
+import com.ecommerce.demo.dtos.PaymentResponse;
+import com.ecommerce.demo.dtos.UserResponse;
+import com.ecommerce.demo.entity.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The payment and user reads are one statement each and load no entity, whatever the payment's order holds.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PaymentService.class, UserService.class, SimpleMeterRegistry.class})
+public class ResponseProjectionQueryTest {
+
+    private static final int PAYMENTS = 5;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private OrderService orderService;
+
+    private Statistics statistics;
+
+    private User user;
+
+    private final List<Long> paymentIds = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        user = entityManager.persist(User.builder().userName("rahim").email("rahim@xyz.com").phone("0123").build());
+        Product product = entityManager.persist(Product.builder().productName("product").price(Money.of(BigDecimal.TEN)).build());
+        for (int i = 0; i < PAYMENTS; i++) {
+            CustomerOrder order = CustomerOrder.builder()
+                    .user(user)
+                    .orderAmount(Money.of(BigDecimal.TEN))
+                    .orderStatus(OrderStatus.Success)
+                    .orderProducts(new ArrayList<>())
+                    .build();
+            order.getOrderProducts().add(OrderProduct.builder().order(order).product(product).quantity(1).build());
+            entityManager.persist(order);
+            paymentIds.add(entityManager.persist(Payment.builder()
+                    .order(order)
+                    .user(user)
+                    .receivedAmount(Money.of(BigDecimal.TEN))
+                    .paymentStatus(PaymentStatus.Success)
+                    .build()).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void testGetAllPayments_OneStatementPerPage() {
+        // Act
+        CursorPage<PaymentResponse> page = paymentService.getAllPayments(0L, 50);
+
+        // Assert
+        assertEquals(paymentIds, page.getItems().stream().map(PaymentResponse::getId).toList());
+        page.getItems().forEach(payment -> assertEquals(user.getId(), payment.getUserId()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void testGetPaymentById_OneStatement() {
+        // Act
+        PaymentResponse payment = paymentService.getPaymentById(paymentIds.get(0));
+
+        // Assert
+        assertNotNull(payment.getOrderId());
+        assertEquals(PaymentStatus.Success, payment.getPaymentStatus());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void testGetUserResponseById_OneStatement() {
+        // Act
+        UserResponse response = userService.getUserResponseById(user.getId());
+
+        // Assert
+        assertEquals("rahim", response.getUserName());
+        assertEquals("0123", response.getPhone());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
@@ -0,0 +1,291 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.config.CacheConfig;
+import com.ecommerce.demo.dtos.StockLevel;
+import com.ecommerce.demo.config.MetricsConfig;
+import com.ecommerce.demo.entity.*;
+import com.ecommerce.demo.repository.CustomerOrderRepository;
+import com.ecommerce.demo.repository.ProductRepository;
+import com.ecommerce.demo.repository.UserRepository;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reservations on a standalone Hazelcast member over the H2 product table. Test methods are not
+ * transactional so that commit and rollback callbacks run as they do in production.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StockService.class, SimpleMeterRegistry.class, StockServiceTest.TestConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StockServiceTest {
+
+    @TestConfiguration
+    static class TestConfig {
+
+        //same map settings as the application, on a member that cannot join any other cluster
+        @Bean
+        public HazelcastInstance hazelcastInstance() {
+            Config config = new CacheConfig().configure()
+                    .setInstanceName("stock-test-" + UUID.randomUUID())
+                    .setClusterName("stock-test-" + UUID.randomUUID());
+            config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+            return Hazelcast.newHazelcastInstance(config);
+        }
+
+        @Bean
+        public CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheConfig.PRODUCT_LIST_CACHE);
+        }
+    }
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CustomerOrderRepository customerOrderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @AfterEach
+    public void tearDown() {
+        hazelcastInstance.getMap(CacheConfig.STOCK_MAP).clear();
+        customerOrderRepository.deleteAll();
+        userRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testReserve_ConcurrentOrdersNeverOversell() throws Exception {
+        // Arrange
+        Long productId = saveProduct(50);
+        int threads = 8;
+        int attemptsPerThread = 20;
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int attempt = 0; attempt < attemptsPerThread; attempt++) {
+                    try {
+                        stockService.reserve(Map.of(productId, 1));
+                        reserved.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        assertTrue(e.getMessage().startsWith("Insufficient stock"));
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Assert
+        assertEquals(50, reserved.get());
+        StockLevel stockLevel = stockService.getStock(productId);
+        assertEquals(50, stockLevel.getReserved());
+        assertEquals(0, stockLevel.getAvailable());
+    }
+
+    @Test
+    public void testReserve_ShortageReleasesTheOtherProducts() {
+        // Arrange
+        Long pen = saveProduct(5);
+        Long book = saveProduct(1);
+        Long untracked = saveProduct(null);
+
+        // Act
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> stockService.reserve(Map.of(pen, 2, book, 3, untracked, 100)));
+
+        // Assert
+        assertEquals("Insufficient stock for products [" + book + "]", exception.getMessage());
+        assertEquals(0, stockService.getStock(pen).getReserved());
+        assertEquals(0, stockService.getStock(book).getReserved());
+        stockService.reserve(Map.of(untracked, 1000));
+        assertFalse(stockService.getStock(untracked).isTracked());
+    }
+
+    @Test
+    public void testCommit_WritesSoldUnitsBackToProduct() {
+        // Arrange
+        Long productId = saveProduct(10);
+        transactionTemplate.executeWithoutResult(status -> stockService.reserve(Map.of(productId, 3)));
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            stockService.commit(Map.of(productId, 3));
+            //applied only once the transaction commits
+            assertEquals(3, stockService.getStock(productId).getReserved());
+        });
+        stockService.writeBack();
+
+        // Assert
+        StockLevel stockLevel = stockService.getStock(productId);
+        assertEquals(7, stockLevel.getOnHand());
+        assertEquals(0, stockLevel.getReserved());
+        assertFalse(stockLevel.isDirty());
+        assertEquals(7, jdbcTemplate.queryForObject("select stock_quantity from product where id = ?", Integer.class, productId));
+    }
+
+    @Test
+    public void testReserve_ReleasedWhenTransactionRollsBack() {
+        // Arrange
+        Long productId = saveProduct(4);
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            stockService.reserve(Map.of(productId, 4));
+            assertEquals(0, stockService.getStock(productId).getAvailable());
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertEquals(4, stockService.getStock(productId).getAvailable());
+        assertEquals(0, stockService.getStock(productId).getReserved());
+    }
+
+    @Test
+    public void testSetStock_TrackingStartsFromPendingOrders() {
+        // Arrange
+        //the product is in the map while untracked, an order then reserves 3 units that are counted but not limited
+        Long productId = saveProduct(null);
+        stockService.getStock(productId);
+        savePendingOrder(productId, 3);
+        stockService.reserve(Map.of(productId, 3));
+
+        // Act
+        StockLevel stockLevel = stockService.setStock(productId, 10);
+
+        // Assert
+        assertTrue(stockLevel.isTracked());
+        assertEquals(3, stockLevel.getReserved());
+        assertEquals(7, stockLevel.getAvailable());
+        //restocking a tracked product keeps the live count
+        assertEquals(3, stockService.setStock(productId, 20).getReserved());
+    }
+
+    @Test
+    public void testSetStock_UntrackedSalesKeepTheCountLive() {
+        // Arrange
+        Long productId = saveProduct(null);
+        double underflows = meterRegistry.counter(MetricsConfig.STOCK_RESERVATIONS_COUNTER, "result", "underflow").count();
+        stockService.reserve(Map.of(productId, 4));
+        stockService.commit(Map.of(productId, 1));
+
+        // Act
+        StockLevel stockLevel = stockService.setStock(productId, 10);
+
+        // Assert
+        assertEquals(3, stockLevel.getReserved());
+        assertEquals(10, stockLevel.getOnHand());
+        assertEquals(underflows, meterRegistry.counter(MetricsConfig.STOCK_RESERVATIONS_COUNTER, "result", "underflow").count());
+    }
+
+    @Test
+    public void testWriteBack_DropsCachedProductPages() {
+        // Arrange
+        Long productId = saveProduct(5);
+        stockService.reserve(Map.of(productId, 2));
+        stockService.commit(Map.of(productId, 2));
+        Cache productPages = cacheManager.getCache(CacheConfig.PRODUCT_LIST_CACHE);
+        productPages.put("0:50", "page with 5 in stock");
+
+        // Act
+        stockService.writeBack();
+
+        // Assert
+        assertEquals(3, jdbcTemplate.queryForObject("select stock_quantity from product where id = ?", Integer.class, productId));
+        assertNull(productPages.get("0:50"));
+    }
+
+    @Test
+    public void testRelease_MoreThanReservedIsCounted() {
+        // Arrange
+        Long productId = saveProduct(5);
+        stockService.reserve(Map.of(productId, 1));
+
+        // Act
+        stockService.release(Map.of(productId, 3));
+
+        // Assert
+        assertEquals(0, stockService.getStock(productId).getReserved());
+        assertEquals(1.0, meterRegistry.counter(MetricsConfig.STOCK_RESERVATIONS_COUNTER, "result", "underflow").count());
+    }
+
+    private void savePendingOrder(Long productId, int quantity) {
+        User user = userRepository.save(User.builder().userName("rahim").email("rahim@xyz.com").build());
+        CustomerOrder order = CustomerOrder.builder()
+                .user(user)
+                .orderAmount(Money.of(BigDecimal.TEN))
+                .orderStatus(OrderStatus.Pending)
+                .orderProducts(new ArrayList<>())
+                .build();
+        order.getOrderProducts().add(OrderProduct.builder()
+                .order(order)
+                .product(productRepository.getReferenceById(productId))
+                .quantity(quantity)
+                .build());
+        customerOrderRepository.save(order);
+    }
+
+    private Long saveProduct(Integer stockQuantity) {
+        return productRepository.save(Product.builder()
+                .productName("product")
+                .price(Money.of(BigDecimal.TEN))
+                .stockQuantity(stockQuantity)
+                .build()).getId();
+    }
+}
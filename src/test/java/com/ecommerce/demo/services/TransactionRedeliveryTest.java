@@ -0,0 +1,109 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.dtos.PaymentEvent;
+import com.ecommerce.demo.entity.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * At-least-once delivery from the outbox relay against the unique transaction.payment_id.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TransactionService.class, ReportService.class, TransactionRedeliveryTest.Beans.class})
+public class TransactionRedeliveryTest {
+
+    @TestConfiguration
+    static class Beans {
+
+        @Bean
+        MessageConverter messageConverter() {
+            return new Jackson2JsonMessageConverter();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Test
+    public void testConsumePayments_RedeliveredEventStoredAndCountedOnce() {
+        // Arrange
+        User user = entityManager.persist(User.builder().userName("rahim").email("rahim@xyz.com").build());
+        Product pen = entityManager.persist(Product.builder().productName("pen").price(Money.of(new BigDecimal("2.50"))).build());
+        CustomerOrder order = CustomerOrder.builder()
+                .user(user)
+                .orderProducts(new ArrayList<>())
+                .orderStatus(OrderStatus.Success)
+                .build();
+        order.getOrderProducts().add(OrderProduct.builder().order(order).product(pen).quantity(2).build());
+        order.setOrderAmount(OrderService.calculateOrderAmount(order.getOrderProducts()));
+        entityManager.persist(order);
+        Payment payment = entityManager.persistAndFlush(Payment.builder()
+                .order(order)
+                .user(user)
+                .receivedAmount(order.getOrderAmount())
+                .paymentStatus(PaymentStatus.Success)
+                .build());
+        Message message = messageConverter.toMessage(PaymentEvent.builder()
+                .version(PaymentEvent.CURRENT_VERSION)
+                .paymentId(payment.getId())
+                .orderId(order.getId())
+                .userId(user.getId())
+                .amount(order.getOrderAmount().toBigDecimal())
+                .build(), new MessageProperties());
+
+        // Act
+        //twice in one delivery, then once more after the first delivery was stored
+        transactionService.consumePayments(List.of(message, message));
+        transactionService.consumePayments(List.of(message));
+
+        // Assert
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from transaction", Integer.class));
+        assertEquals(1, reportService.getUserSales(user.getId()).getOrderCount());
+        assertEquals(0, new BigDecimal("5.00").compareTo(reportService.getUserSales(user.getId()).getRevenue()));
+        assertEquals(2, reportService.getProductSales(pen.getId()).getUnitsSold());
+    }
+}
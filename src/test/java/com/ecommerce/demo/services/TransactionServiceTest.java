@@ -0,0 +1,215 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.ecommerce.demo.config.RabbitMQConfig;
+import com.ecommerce.demo.dtos.PaymentEvent;
+import com.ecommerce.demo.entity.CustomerOrder;
+import com.ecommerce.demo.entity.Money;
+import com.ecommerce.demo.entity.Payment;
+import com.ecommerce.demo.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class TransactionServiceTest {
+
+    @InjectMocks
+    private TransactionService transactionService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private ReportService reportService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Captor
+    private ArgumentCaptor<Collection<PaymentEvent>> batch;
+
+    @Spy
+    private MessageConverter messageConverter = new Jackson2JsonMessageConverter();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    public void testConsumePayments_OneBatchInsertPerDelivery() {
+        // Arrange
+        List<Message> messages = new ArrayList<>();
+        for (long i = 1; i <= 100; i++) {
+            messages.add(paymentMessage(i));
+        }
+
+        // Act
+        transactionService.consumePayments(messages);
+
+        // Assert
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture(), eq(100),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(100, batch.getValue().size());
+        verify(reportService, times(1)).recordSales(argThat(events -> events.size() == 100), any());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    public void testConsumePayments_PoisonMessagesRoutedToDeadLetterQueue() {
+        // Arrange
+        Message unreadable = new Message("not json".getBytes(StandardCharsets.UTF_8), new MessageProperties());
+        Message incomplete = messageConverter.toMessage(PaymentEvent.builder().paymentId(3L).build(), new MessageProperties());
+        List<Message> messages = List.of(paymentMessage(1L), unreadable, incomplete, paymentMessage(2L));
+
+        // Act
+        transactionService.consumePayments(messages);
+
+        // Assert
+        verify(jdbcTemplate).batchUpdate(anyString(), anyCollection(), eq(2), any(ParameterizedPreparedStatementSetter.class));
+        verify(rabbitTemplate).send(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, unreadable);
+        verify(rabbitTemplate).send(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, incomplete);
+    }
+
+    @Test
+    public void testConsumePayments_DatabaseFailurePropagatesForRedelivery() {
+        // Arrange
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new RuntimeException("connection lost"));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> transactionService.consumePayments(List.of(paymentMessage(1L))));
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    public void testConsumePayments_ConstraintViolationDeadLettersOnlyTheFailingEvent() {
+        // Arrange
+        //order 2 was deleted after its payment, its row fails the foreign key whether alone or in a batch
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    Collection<PaymentEvent> batch = invocation.getArgument(1);
+                    if (batch.stream().anyMatch(paymentEvent -> paymentEvent.getOrderId() == 2L)) {
+                        throw new DataIntegrityViolationException("foreign key violation");
+                    }
+                    return new int[][]{};
+                });
+        Message deletedOrder = paymentMessage(2L);
+
+        // Act
+        transactionService.consumePayments(List.of(paymentMessage(1L), deletedOrder, paymentMessage(3L)));
+
+        // Assert
+        verify(reportService, times(2)).recordSales(argThat(events -> events.size() == 1), any());
+        verify(rabbitTemplate).send(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, deletedOrder);
+        verifyNoMoreInteractions(rabbitTemplate);
+    }
+
+    @Test
+    public void testConsumePayments_RedeliveredPaymentsNotStoredOrCountedAgain() {
+        // Arrange
+        //payment 1 was stored by an earlier delivery, payment 2 arrives twice in this batch
+        when(namedParameterJdbcTemplate.queryForList(anyString(), anyMap(), eq(Long.class))).thenReturn(List.of(1L));
+
+        // Act
+        transactionService.consumePayments(List.of(paymentMessage(1L), paymentMessage(2L), paymentMessage(2L), paymentMessage(3L)));
+
+        // Assert
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture(), eq(2), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(List.of(2L, 3L), batch.getValue().stream().map(PaymentEvent::getPaymentId).toList());
+        verify(reportService).recordSales(argThat(events -> events.size() == 2), any());
+        assertEquals(2.0, meterRegistry.counter("transactions.messages", "result", "duplicate").count());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    public void testConsumePayments_PaymentStoredConcurrentlySkippedNotDeadLettered() {
+        // Arrange
+        //another consumer stores payment 2 after this batch read the table, so the batch insert fails its unique key
+        when(namedParameterJdbcTemplate.queryForList(anyString(), anyMap(), eq(Long.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of())
+                .thenReturn(List.of(2L));
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DuplicateKeyException("uk_transaction_payment"))
+                .thenReturn(new int[][]{});
+
+        // Act
+        transactionService.consumePayments(List.of(paymentMessage(1L), paymentMessage(2L)));
+
+        // Assert
+        verify(reportService, times(1)).recordSales(argThat(events -> events.size() == 1), any());
+        assertEquals(1.0, meterRegistry.counter("transactions.messages", "result", "stored").count());
+        assertEquals(1.0, meterRegistry.counter("transactions.messages", "result", "duplicate").count());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    public void testConsumePayments_LegacyPaymentMessagesStillConsumed() {
+        // Arrange
+        Payment payment = Payment.builder()
+                .id(1L)
+                .order(CustomerOrder.builder().id(1L).build())
+                .user(User.builder().id(1L).build())
+                .receivedAmount(Money.of(new BigDecimal("100.00")))
+                .build();
+        Message legacy = messageConverter.toMessage(payment, new MessageProperties());
+
+        // Act
+        transactionService.consumePayments(List.of(legacy));
+
+        // Assert
+        verify(jdbcTemplate).batchUpdate(anyString(), anyCollection(), eq(1), any(ParameterizedPreparedStatementSetter.class));
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    private Message paymentMessage(Long id) {
+        PaymentEvent paymentEvent = PaymentEvent.builder()
+                .version(PaymentEvent.CURRENT_VERSION)
+                .paymentId(id)
+                .orderId(id)
+                .userId(id)
+                .amount(new BigDecimal("100.00"))
+                .build();
+        return messageConverter.toMessage(paymentEvent, new MessageProperties());
+    }
+}
@@ -0,0 +1,189 @@
+package com.ecommerce.demo.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ecommerce.demo.dtos.CursorPage;
+import com.ecommerce.demo.dtos.OrderResponse;
+import com.ecommerce.demo.dtos.PaymentResponse;
+import com.ecommerce.demo.entity.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Filters and keyset paging of GET /users/{id}/orders and GET /users/{id}/payments.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderService.class, PaymentService.class, SimpleMeterRegistry.class})
+public class UserHistoryQueryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private StockService stockService;
+
+    private User user;
+
+    private final List<Long> orderIds = new ArrayList<>();
+
+    //user gets 10 orders, one per day from START, every third one Success and paid; another user gets one of each
+    @BeforeEach
+    public void setUp() {
+        user = entityManager.persist(User.builder().userName("rahim").email("rahim@xyz.com").build());
+        User otherUser = entityManager.persist(User.builder().userName("karim").email("karim@xyz.com").build());
+        Product product = entityManager.persist(Product.builder().productName("product").price(Money.of(BigDecimal.TEN)).build());
+
+        for (int i = 0; i < 10; i++) {
+            OrderStatus status = i % 3 == 0 ? OrderStatus.Success : OrderStatus.Pending;
+            CustomerOrder order = persistOrder(user, product, status, START.plusDays(i));
+            orderIds.add(order.getId());
+            if (status == OrderStatus.Success) {
+                persistPayment(order, PaymentStatus.Success, START.plusDays(i));
+            }
+        }
+        CustomerOrder otherOrder = persistOrder(otherUser, product, OrderStatus.Success, START);
+        persistPayment(otherOrder, PaymentStatus.Success, START);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void testGetUserOrders_NewestFirstAcrossPages() {
+        // Act
+        CursorPage<OrderResponse> first = orderService.getUserOrders(user.getId(), null, null, null, null, null, 4);
+        CursorPage<OrderResponse> second = orderService.getUserOrders(user.getId(), null, null, null, first.getNextCreatedOn(), first.getNextAfterId(), 4);
+        CursorPage<OrderResponse> last = orderService.getUserOrders(user.getId(), null, null, null, second.getNextCreatedOn(), second.getNextAfterId(), 4);
+
+        // Assert
+        List<Long> ids = new ArrayList<>();
+        List.of(first, second, last).forEach(page -> page.getItems().forEach(order -> ids.add(order.getId())));
+        List<Long> newestFirst = new ArrayList<>(orderIds);
+        Collections.reverse(newestFirst);
+        assertEquals(newestFirst, ids);
+        assertNull(last.getNextAfterId());
+        assertEquals(1, first.getItems().get(0).getOrderProducts().size());
+    }
+
+    @Test
+    public void testGetUserOrders_FiltersByStatusAndDateRange() {
+        // Act
+        CursorPage<OrderResponse> successful = orderService.getUserOrders(user.getId(), OrderStatus.Success, null, null, null, null, 50);
+        CursorPage<OrderResponse> secondWeek = orderService.getUserOrders(user.getId(), null,
+                START.plusDays(7), START.plusDays(14), null, null, 50);
+        CursorPage<OrderResponse> pendingInSecondWeek = orderService.getUserOrders(user.getId(), OrderStatus.Pending,
+                START.plusDays(7), START.plusDays(14), null, null, 50);
+
+        // Assert
+        assertEquals(List.of(orderIds.get(9), orderIds.get(6), orderIds.get(3), orderIds.get(0)),
+                successful.getItems().stream().map(OrderResponse::getId).toList());
+        assertEquals(List.of(orderIds.get(9), orderIds.get(8), orderIds.get(7)),
+                secondWeek.getItems().stream().map(OrderResponse::getId).toList());
+        assertEquals(List.of(orderIds.get(8), orderIds.get(7)),
+                pendingInSecondWeek.getItems().stream().map(OrderResponse::getId).toList());
+    }
+
+    @Test
+    public void testGetUserOrders_PagesByCreationTimeThenId() {
+        // Arrange
+        //ids ascend, creation times do not: an imported order and two orders in the same second
+        User importer = entityManager.persist(User.builder().userName("importer").email("importer@xyz.com").build());
+        Product product = entityManager.persist(Product.builder().productName("imported").price(Money.of(BigDecimal.TEN)).build());
+        Long newest = persistOrder(importer, product, OrderStatus.Pending, START.plusDays(2)).getId();
+        Long oldest = persistOrder(importer, product, OrderStatus.Pending, START).getId();
+        Long tiedFirst = persistOrder(importer, product, OrderStatus.Pending, START.plusDays(1)).getId();
+        Long tiedSecond = persistOrder(importer, product, OrderStatus.Pending, START.plusDays(1)).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        CursorPage<OrderResponse> first = orderService.getUserOrders(importer.getId(), null, null, null, null, null, 2);
+        CursorPage<OrderResponse> second = orderService.getUserOrders(importer.getId(), null, null, null,
+                first.getNextCreatedOn(), first.getNextAfterId(), 2);
+        //a cursor with the id only, as sent before nextCreatedOn existed
+        CursorPage<OrderResponse> idOnly = orderService.getUserOrders(importer.getId(), null, null, null,
+                null, first.getNextAfterId(), 2);
+
+        // Assert
+        assertEquals(List.of(newest, tiedSecond), first.getItems().stream().map(OrderResponse::getId).toList());
+        assertEquals(START.plusDays(1), first.getNextCreatedOn());
+        assertEquals(List.of(tiedFirst, oldest), second.getItems().stream().map(OrderResponse::getId).toList());
+        assertEquals(second.getItems().stream().map(OrderResponse::getId).toList(),
+                idOnly.getItems().stream().map(OrderResponse::getId).toList());
+        assertNull(second.getNextAfterId());
+    }
+
+    @Test
+    public void testGetUserPayments_OnlyThatUsersPayments() {
+        // Act
+        CursorPage<PaymentResponse> payments = paymentService.getUserPayments(user.getId(), PaymentStatus.Success,
+                null, START.plusDays(5), null, null, 50);
+
+        // Assert
+        assertEquals(List.of(orderIds.get(3), orderIds.get(0)),
+                payments.getItems().stream().map(PaymentResponse::getOrderId).toList());
+        assertTrue(payments.getItems().stream().allMatch(payment -> payment.getUserId().equals(user.getId())));
+        assertTrue(paymentService.getUserPayments(user.getId(), PaymentStatus.Failed, null, null, null, null, 50).getItems().isEmpty());
+    }
+
+    private CustomerOrder persistOrder(User owner, Product product, OrderStatus status, LocalDateTime createdOn) {
+        CustomerOrder order = CustomerOrder.builder()
+                .user(owner)
+                .orderAmount(Money.of(BigDecimal.TEN))
+                .orderStatus(status)
+                .orderProducts(new ArrayList<>())
+                .build();
+        order.getOrderProducts().add(OrderProduct.builder().order(order).product(product).quantity(1).build());
+        entityManager.persistAndFlush(order);
+        //@CreationTimestamp always stamps now, backdate the row for the range filters
+        entityManager.getEntityManager()
+                .createQuery("update CustomerOrder o set o.createdOn = :createdOn where o.id = :id")
+                .setParameter("createdOn", createdOn)
+                .setParameter("id", order.getId())
+                .executeUpdate();
+        return order;
+    }
+
+    private void persistPayment(CustomerOrder order, PaymentStatus status, LocalDateTime createdOn) {
+        Payment payment = entityManager.persistAndFlush(Payment.builder()
+                .order(order)
+                .user(order.getUser())
+                .receivedAmount(Money.of(BigDecimal.TEN))
+                .paymentStatus(status)
+                .build());
+        entityManager.getEntityManager()
+                .createQuery("update Payment p set p.createdOn = :createdOn where p.id = :id")
+                .setParameter("createdOn", createdOn)
+                .setParameter("id", payment.getId())
+                .executeUpdate();
+    }
+}